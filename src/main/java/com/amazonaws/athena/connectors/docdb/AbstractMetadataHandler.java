@@ -1,6 +1,7 @@
 package com.amazonaws.athena.connectors.docdb;
 
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.slf4j.Logger;
@@ -47,7 +48,7 @@ public abstract class AbstractMetadataHandler extends GlueMetadataHandler {
         try {
             Schema schema = super.doGetTable(blockAllocator, request, TABLE_FILTER).getSchema();
             logger.info("Retrieved schema for {} from AWS Glue", request.getTableName().getQualifiedTableName());
-            return new GetTableResponse(request.getCatalogName(), request.getTableName(), schema);
+            return new GetTableResponse(request.getCatalogName(), request.getTableName(), schema, getPartitionColumns(request, schema));
         } catch (RuntimeException ex) {
             logger.warn("Unable to retrieve table {} from AWS Glue", request.getTableName().getQualifiedTableName(), ex);
             return doInferSchema(request);
@@ -55,4 +56,13 @@ public abstract class AbstractMetadataHandler extends GlueMetadataHandler {
     }
 
     protected abstract GetTableResponse doInferSchema(GetTableRequest tableRequest) throws Exception;
+
+    /**
+     * Determines which of the columns of a table retrieved from AWS Glue are partition columns.
+     *
+     * @param tableRequest The request for the table.
+     * @param schema       The schema of the table as retrieved from AWS Glue.
+     * @return The names of the partition columns.
+     */
+    protected abstract Set<String> getPartitionColumns(GetTableRequest tableRequest, Schema schema);
 }
@@ -10,39 +10,62 @@ import org.slf4j.LoggerFactory;
 
 import com.amazonaws.athena.connectors.util.CloseableLazyIteratorChain;
 import com.mongodb.Function;
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
 
-public class ChainedMongoCursor extends CloseableLazyIteratorChain<Document> {
+/**
+ * Iterates over the results of the same find operation on a list of collections, one collection after the other.
+ *
+ * @param <T> The type that the documents are decoded into.
+ */
+public class ChainedMongoCursor<T> extends CloseableLazyIteratorChain<T> implements CollectionCursor<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(ChainedMongoCursor.class);
     private final MongoDatabase mongoDatabase;
     private final List<String> collectionList;
-    private final Function<MongoCollection<Document>, FindIterable<Document>> collectionFunction;
+    private final Function<MongoCollection<Document>, ? extends MongoIterable<T>> collectionFunction;
+    private final int prefetchBatches;
+    private String currentCollection;
 
-    public ChainedMongoCursor(String databaseName, List<String> collectionList, MongoClient client, Function<MongoCollection<Document>, FindIterable<Document>> collectionFunction) {
+    public ChainedMongoCursor(String databaseName, List<String> collectionList, MongoClient client, Function<MongoCollection<Document>, ? extends MongoIterable<T>> collectionFunction) {
+        this(databaseName, collectionList, client, 0, collectionFunction);
+    }
+
+    /**
+     * @param prefetchBatches The number of batches of every collection that are fetched in the background ahead of
+     *                        the consumer, or zero to fetch every batch only once it is needed.
+     */
+    public ChainedMongoCursor(String databaseName, List<String> collectionList, MongoClient client, int prefetchBatches, Function<MongoCollection<Document>, ? extends MongoIterable<T>> collectionFunction) {
         this.collectionFunction = collectionFunction;
         this.mongoDatabase = client.getDatabase(databaseName);
         this.collectionList = collectionList;
+        this.prefetchBatches = prefetchBatches;
         logger.info("Initialized chained cursor for {}", databaseName);
     }
 
     @Override
-    protected Iterator<Document> nextIterator(int count) {
+    protected Iterator<T> nextIterator(int count) {
         if (count <= this.collectionList.size()) {
             String collectionName = this.collectionList.get(count - 1);
             logger.info("Iterating over collection {}", collectionName);
-            return Optional.of(collectionName)
+            this.currentCollection = collectionName;
+            MongoCursor<T> cursor = Optional.of(collectionName)
                     .map(this.mongoDatabase::getCollection)
                     .map(this.collectionFunction::apply)
                     .map(MongoIterable::iterator)
                     .orElseThrow();
+            return prefetchBatches > 0 ? new PrefetchingMongoCursor<>(cursor, prefetchBatches, collectionName) : cursor;
         } else {
             logger.info("No more collections to chain");
             return null;
         }
     }
+
+    @Override
+    public String getCurrentCollection() {
+        return currentCollection;
+    }
 }
@@ -0,0 +1,18 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import com.amazonaws.athena.connectors.util.CloseableIterator;
+
+/**
+ * Iterates over the documents of several collections, keeping track of the collection that every document was read
+ * from.
+ *
+ * @param <T> The type that the documents are decoded into.
+ */
+public interface CollectionCursor<T> extends CloseableIterator<T> {
+
+    /**
+     * @return The name of the collection that the document returned by the last call to {@link #next()} was read
+     * from, or null if no collection was read yet.
+     */
+    String getCurrentCollection();
+}
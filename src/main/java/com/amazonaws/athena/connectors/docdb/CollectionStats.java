@@ -0,0 +1,107 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+
+/**
+ * The storage statistics of a single collection as reported by the {@code $collStats} aggregation stage. These are
+ * used to size splits by the amount of data they read rather than by the number of documents alone.
+ * <p>
+ * On sharded clusters the stage reports the statistics of every shard separately so these are summed up.
+ */
+public class CollectionStats {
+
+    private static final Logger logger = LoggerFactory.getLogger(CollectionStats.class);
+    private static final String STORAGE_STATS = "storageStats";
+    private final long count;
+    private final long size;
+    private final long storageSize;
+
+    public CollectionStats(long count, long size, long storageSize) {
+        this.count = count;
+        this.size = size;
+        this.storageSize = storageSize;
+    }
+
+    /**
+     * Reads the statistics of the given collection. If the statistics can't be read, for example because the user
+     * lacks the privileges to run {@code $collStats}, the document count is estimated from the collection metadata
+     * and the size is reported as unknown.
+     *
+     * @param collection The collection whose statistics should be read.
+     * @return The statistics of the collection.
+     */
+    public static CollectionStats of(MongoCollection<Document> collection) {
+        try {
+            long count = 0;
+            long size = 0;
+            long storageSize = 0;
+            for (Document shardStats : collection.aggregate(List.of(new Document("$collStats", new Document(STORAGE_STATS, new Document()))))) {
+                Document storageStats = shardStats.get(STORAGE_STATS, Document.class);
+                count += getLong(storageStats, "count");
+                size += getLong(storageStats, "size");
+                storageSize += getLong(storageStats, "storageSize");
+            }
+            return new CollectionStats(count, size, storageSize);
+        } catch (MongoException ex) {
+            logger.warn("Unable to read the statistics of collection {}, estimating the count instead", collection.getNamespace(), ex);
+            return new CollectionStats(collection.estimatedDocumentCount(), 0, 0);
+        }
+    }
+
+    private static long getLong(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * @return The number of documents in the collection.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The uncompressed size of all the documents in the collection in bytes, or 0 if unknown.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The size of the storage allocated to the collection in bytes, or 0 if unknown.
+     */
+    public long getStorageSize() {
+        return storageSize;
+    }
+
+    /**
+     * @return The average size of a document in the collection in bytes, or 0 if unknown.
+     */
+    public long getAvgObjSize() {
+        return count == 0 ? 0 : size / count;
+    }
+
+    /**
+     * Computes how many splits' worth of data the collection holds, which is the larger of the ratios of its size to
+     * the target split size and of its document count to the target document count.
+     *
+     * @param targetBytes The number of bytes that a single split should read.
+     * @param targetDocs  The number of documents that a single split should read.
+     * @return The fractional number of splits needed to read the collection.
+     */
+    public double getSplitWeight(long targetBytes, long targetDocs) {
+        return Math.max((double) size / targetBytes, (double) count / targetDocs);
+    }
+
+    @Override
+    public String toString() {
+        return "CollectionStats{count=" + count + ", size=" + size + ", storageSize=" + storageSize + ", avgObjSize=" + getAvgObjSize() + "}";
+    }
+}
@@ -0,0 +1,63 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.athena.connectors.util.CloseableIterator;
+
+/**
+ * Closes a cursor as soon as the query it is read for is no longer running, instead of when the reader gets to check
+ * the status of the query between rows.
+ * <p>
+ * Closing the cursor kills it on the server, so the cluster fetches no further batches for a query which Athena already
+ * cancelled or finished. A getMore that is already in flight isn't interrupted though, it runs until it returns or
+ * reaches the maxTimeMS of the cursor, which is what bounds it.
+ */
+public class CursorWatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CursorWatcher.class);
+    private final ScheduledExecutorService executor;
+    private volatile boolean cancelled;
+
+    /**
+     * @param isQueryRunning Whether the query is still running.
+     * @param cursor         The cursor to close once the query is no longer running.
+     * @param pollMillis     The interval in which the status of the query is checked.
+     */
+    public CursorWatcher(Supplier<Boolean> isQueryRunning, CloseableIterator<?> cursor, long pollMillis) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cursor-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(() -> {
+            if (!cancelled && !isQueryRunning.get()) {
+                logger.info("Query is no longer running, closing cursor");
+                cancelled = true;
+                try {
+                    cursor.close();
+                } catch (RuntimeException ex) {
+                    logger.warn("Error while closing cursor", ex);
+                }
+                executor.shutdown();
+            }
+        }, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return True if the cursor was closed because the query is no longer running.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
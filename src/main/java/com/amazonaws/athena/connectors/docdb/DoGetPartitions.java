@@ -0,0 +1,91 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static com.amazonaws.athena.connector.lambda.handlers.GlueMetadataHandler.SOURCE_TABLE_PROPERTY;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.arrow.vector.types.Types;
+import org.slf4j.Logger;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockWriter;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.handlers.GlueMetadataHandler;
+import com.amazonaws.athena.connector.lambda.metadata.GetTableLayoutRequest;
+import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
+import com.mongodb.client.MongoClient;
+
+public interface DoGetPartitions {
+
+    // The partition column holding the name of the collection that backs each partition.
+    String COLLECTION_NAME_COL = "collection_name";
+
+    /**
+     * Every collection backing the requested table is a partition. The named groups of a multi-tenant table's glob
+     * pattern are its partition columns and the values they capture from the collection's name are the partition
+     * values, e.g. the collection {@code Product_42} of the pattern {@code Product_{{tenant}}} is the partition
+     * {@code tenant=42}.
+     * <p>
+     * The partition block is constrained by the query's constraints on the partition columns, so a query like
+     * {@code WHERE tenant = '42'} only yields the partitions of the matching collections.
+     *
+     * @see GlueMetadataHandler
+     */
+    default void getPartitions(BlockWriter blockWriter, GetTableLayoutRequest request, Supplier<Boolean> isQueryRunning) {
+        String schemaName = request.getTableName().getSchemaName();
+        String tableName = request.getSchema().getCustomMetadata().getOrDefault(SOURCE_TABLE_PROPERTY, request.getTableName().getTableName());
+
+        MongoClient client = getOrCreateConn(request);
+        List<String> collectionNames = getGlobHandler().resolveCollections(tableName, client.getDatabase(schemaName).listCollectionNames());
+        for (String collectionName : collectionNames) {
+            if (!isQueryRunning.get()) {
+                return;
+            }
+
+            Map<String, String> groups = getGlobHandler().getGroups(tableName, collectionName);
+            blockWriter.writeRows((Block block, int rowNum) -> {
+                boolean matched = true;
+                for (String partitionCol : request.getPartitionCols()) {
+                    matched &= block.setValue(partitionCol, rowNum, getGroup(groups, partitionCol));
+                }
+                matched &= block.setValue(COLLECTION_NAME_COL, rowNum, collectionName);
+                if (matched) {
+                    getLogger().info("Collection {} matches the partition constraints", collectionName);
+                } else {
+                    getLogger().info("Collection {} was pruned by the partition constraints", collectionName);
+                }
+                return matched ? 1 : 0;
+            });
+        }
+    }
+
+    /**
+     * Glue lower cases the names of columns, so the groups are looked up ignoring case.
+     */
+    private static String getGroup(Map<String, String> groups, String partitionCol) {
+        return groups.entrySet().stream()
+                .filter(group -> group.getKey().equalsIgnoreCase(partitionCol))
+                .findFirst()
+                .map(Map.Entry::getValue)
+                .orElse(null);
+    }
+
+    /**
+     * Adds the name of the collection to the partition schema so that the splits can be generated directly from the
+     * partitions which survived pruning.
+     *
+     * @see GlueMetadataHandler
+     */
+    @SuppressWarnings("unused")
+    default void enhancePartitionSchema(SchemaBuilder partitionSchemaBuilder, GetTableLayoutRequest request) {
+        partitionSchemaBuilder.addField(COLLECTION_NAME_COL, Types.MinorType.VARCHAR.getType());
+    }
+
+    MongoClient getOrCreateConn(MetadataRequest request);
+
+    Logger getLogger();
+
+    GlobHandler getGlobHandler();
+}
@@ -1,18 +1,26 @@
 package com.amazonaws.athena.connectors.docdb;
 
+import static com.amazonaws.athena.connector.lambda.domain.predicate.Constraints.DEFAULT_NO_LIMIT;
 import static com.amazonaws.athena.connector.lambda.handlers.GlueMetadataHandler.SOURCE_TABLE_PROPERTY;
-import static com.amazonaws.athena.connectors.docdb.DocDBFieldResolver.DEFAULT_FIELD_RESOLVER;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import org.apache.arrow.vector.types.Types;
 import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
 import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 
@@ -20,19 +28,44 @@ import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.FederationExpression;
 import com.amazonaws.athena.connector.lambda.handlers.RecordHandler;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
-import com.google.common.collect.Streams;
 import com.mongodb.Function;
-import com.mongodb.client.FindIterable;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
 
 public interface DoGetRecords {
 
     // This needs to be turned on if the user is using a Glue table, and their docdb tables contain cased column names
     String DISABLE_PROJECTION_AND_CASING_ENV = "disable_projection_and_casing";
+    // Decodes the documents into Documents before converting them into rows, rather than straight into rows.
+    String DISABLE_DIRECT_DECODING_ENV = "disable_direct_decoding";
+    // The maximum number of documents read within a single call to the spiller. The spiller rejects calls which write
+    // more than 100 rows, as larger calls could overshoot the maximum size of a block before it is spilled.
+    int MAX_ROWS_PER_WRITE = 100;
+    // The number of batches that are fetched in the background while the batches before are written, or zero to only
+    // fetch a batch once it is needed.
+    String PREFETCH_BATCHES_ENV = "prefetch_batches";
+    // The number of collections of a split that are read at the same time.
+    String PARALLEL_COLLECTIONS_ENV = "parallel_collections";
+    // Whether the collections should be read with the reactive streams driver instead of the synchronous driver.
+    String REACTIVE_READS_ENV = "reactive_reads";
+    // The number of documents that the reactive streams driver may push ahead of the block writer.
+    String REACTIVE_BUFFERED_DOCUMENTS_ENV = "reactive_buffered_documents";
+    // The timeout of the Lambda function in seconds, from which the time that the scans may take on the server is
+    // derived.
+    String LAMBDA_TIMEOUT_ENV = "lambda_timeout_seconds";
+    // The time in milliseconds that is left to the Lambda function for writing its last block once the scans were
+    // stopped by the server.
+    long MAX_TIME_MARGIN_MILLIS = 5000;
+    // The interval in milliseconds in which the status of the query is checked while the collections are read.
+    long QUERY_STATUS_POLL_MILLIS = 500;
 
     /**
      * Scans DocumentDB using the scan settings set on the requested Split by DocDBeMetadataHandler.
@@ -41,105 +74,290 @@ public interface DoGetRecords {
      */
     @SuppressWarnings({"ConstantValue", "ReassignedVariable"})
     default void readWithConstraint(BlockSpiller spiller, ReadRecordsRequest recordsRequest, Supplier<Boolean> isQueryRunning) {
+        long lambdaTimeoutSeconds = Long.parseLong(getConfig().getOrDefault(LAMBDA_TIMEOUT_ENV, "0"));
+        long deadline = lambdaTimeoutSeconds > 0 ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(lambdaTimeoutSeconds) - MAX_TIME_MARGIN_MILLIS : 0;
         TableName tableNameObj = recordsRequest.getTableName();
         String schemaName = tableNameObj.getSchemaName();
         String tableName = recordsRequest.getSchema().getCustomMetadata().getOrDefault(SOURCE_TABLE_PROPERTY, tableNameObj.getTableName());
 
         getLogger().info("Resolved tableName to: {}", tableName);
 
-        Map<String, ValueSet> constraintSummary = recordsRequest.getConstraints().getSummary();
+        // The fields captured from the collection names of a multi-tenant table don't exist inside the documents, so
+        // they are neither queried nor projected but filled in with the same value for every document of a collection.
+        Collection<String> globFields = getGlobHandler().getFields(tableName);
+        List<Field> constantFields = new ArrayList<>();
+        List<Field> documentFields = new ArrayList<>();
+        for (Field field : recordsRequest.getSchema().getFields()) {
+            if (globFields.stream().anyMatch(field.getName()::equalsIgnoreCase)) {
+                constantFields.add(field);
+            } else {
+                documentFields.add(field);
+            }
+        }
+        Schema documentSchema = new Schema(documentFields, recordsRequest.getSchema().getCustomMetadata());
+
+        Map<String, ValueSet> constraintSummary = recordsRequest.getConstraints().getSummary().entrySet().stream()
+                .filter(entry -> constantFields.stream().noneMatch(field -> field.getName().equals(entry.getKey())))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
         MongoClient client = getOrCreateConn(recordsRequest.getSplit());
         getLogger().info("Running query with constraints {}", constraintSummary);
-        Document query = QueryUtils.makeQuery(recordsRequest.getSchema(), constraintSummary);
+        Document constraintQuery = QueryUtils.makeQuery(documentSchema, constraintSummary);
 
         String disableProjectionAndCasingEnvValue = getConfig().getOrDefault(DISABLE_PROJECTION_AND_CASING_ENV, "false").toLowerCase();
         boolean disableProjectionAndCasing = disableProjectionAndCasingEnvValue.equals("true");
         getLogger().info("{} environment variable set to: {}. Resolved to: {}", DISABLE_PROJECTION_AND_CASING_ENV, disableProjectionAndCasingEnvValue, disableProjectionAndCasing);
 
+        // Pushed down expressions refer to the keys by their column names, which only match while casing is enabled.
+        List<FederationExpression> expressions = recordsRequest.getConstraints().getExpression();
+        if (!disableProjectionAndCasing) {
+            Document expressionQuery = ExpressionUtils.makeExpressionQuery(documentSchema, expressions);
+            if (!expressionQuery.isEmpty()) {
+                constraintQuery = constraintQuery.isEmpty() ? expressionQuery : new Document("$and", List.of(constraintQuery, expressionQuery));
+            }
+        }
+        Document query = SplitUtils.applyRange(recordsRequest.getSplit(), constraintQuery);
+
         // TODO: Currently AWS DocumentDB does not support collation, which is required for case insensitive indexes:
         // https://www.mongodb.com/docs/manual/core/index-case-insensitive/
         // Once AWS DocumentDB supports collation, then projections do not have to be disabled anymore because case
-        // insensitive indexes allows for case insensitive projections.
-        Document projection = disableProjectionAndCasing ? null : QueryUtils.makeProjection(recordsRequest.getSchema());
+        // insensitive indexes allows for case insensitive projections. Until then, the documents are read in full
+        // while their keys are matched to the columns ignoring case.
+        Document projection = disableProjectionAndCasing ? null : QueryUtils.makeProjection(documentSchema);
 
         getLogger().info("query[{}] projection[{}]", query, projection);
 
-        long numRows;
-        AtomicLong numResultRows;
-
-        List<String> collectionNames;
-        if (getGlobHandler().isMultiTenant(tableName)) {
-            collectionNames = Streams.stream(client.getDatabase(schemaName).listCollectionNames())
-                    .filter(collectionName -> {
-                        if (getGlobHandler().test(tableName, collectionName)) {
-                            getLogger().info("Collection {} matches requested table {}", collectionName, tableName);
-                            return true;
-                        } else {
-                            getLogger().info("Collection {} doesn't match requested table {}", collectionName, tableName);
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-        } else {
-            collectionNames = Streams.stream(client.getDatabase(schemaName).listCollectionNames())
-                    .filter(s -> s.equalsIgnoreCase(tableName))
-                    .collect(Collectors.toList());
+        String disableDirectDecodingEnvValue = getConfig().getOrDefault(DISABLE_DIRECT_DECODING_ENV, "false").toLowerCase();
+        boolean disableDirectDecoding = disableDirectDecodingEnvValue.equals("true");
+        getLogger().info("{} environment variable set to: {}. Resolved to: {}", DISABLE_DIRECT_DECODING_ENV, disableDirectDecodingEnvValue, disableDirectDecoding);
+        RowCodec rowCodec = new RowCodec(documentFields, disableProjectionAndCasing);
+        int prefetchBatches = Integer.parseInt(getConfig().getOrDefault(PREFETCH_BATCHES_ENV, "2"));
+        int parallelCollections = Integer.parseInt(getConfig().getOrDefault(PARALLEL_COLLECTIONS_ENV, "4"));
+
+        AtomicLong numRows = new AtomicLong(0);
+        AtomicLong numResultRows = new AtomicLong(0);
+        List<String> collectionNames = SplitUtils.getCollections(recordsRequest.getSplit());
+        if (collectionNames == null) {
+            collectionNames = getGlobHandler().resolveCollections(tableName, client.getDatabase(schemaName).listCollectionNames());
         }
 
-        getLogger().info("Querying collection {}", collectionNames);
+        // The values of the constant fields are resolved and checked against the constraints once per collection, so
+        // collections which can't match are skipped without being queried.
+        Map<String, Object[]> collectionConstants = new HashMap<>();
+        List<String> matchingCollectionNames = new ArrayList<>();
+        for (String collectionName : collectionNames) {
+            Map<String, Object> constants = getConstants(tableName, collectionName, constantFields);
+            if (constants.entrySet().stream().allMatch(entry -> spiller.getConstraintEvaluator().apply(entry.getKey(), entry.getValue()))) {
+                collectionConstants.put(collectionName, constants.values().toArray());
+                matchingCollectionNames.add(collectionName);
+            } else {
+                getLogger().info("Skipping collection {} as {} doesn't match the constraints", collectionName, constants);
+            }
+        }
 
-        try (ChainedMongoCursor iterable = new ChainedMongoCursor(schemaName, collectionNames, client, new Function<>() {
+        // A pushed down ORDER BY is applied as the sort of every collection, and the sorted collections of a split
+        // are merged. The keys of the documents only match the column names while casing is enabled. MongoDB sorts the
+        // values as they are stored, so the sort is only pushed down if no collection holds values which Athena orders
+        // differently once they are read into their columns.
+        List<OrderByField> orderBy = recordsRequest.getConstraints().getOrderByClause();
+        Document requestedSort = orderBy.isEmpty() || disableProjectionAndCasing ? null : QueryUtils.makeSort(documentSchema, orderBy);
+        Document sort = requestedSort != null && hasOrderedValues(recordsRequest.getSplit(), client.getDatabase(schemaName), matchingCollectionNames,
+                QueryUtils.makeUnorderedValuesQuery(documentSchema, orderBy)) ? requestedSort : null;
+        // A pushed down LIMIT is shared by the collections of the split: every collection is only asked for the rows
+        // that are still missing when it is opened, and reading stops once the limit was reached. This requires the
+        // query to return exactly the rows which satisfy the constraints, in the requested order, which translated
+        // expressions don't guarantee, and no row to be rejected once its values were coerced into their columns.
+        boolean limitable = QueryUtils.isExactQuery(documentSchema, constraintSummary) && QueryUtils.isCoercionSafeQuery(documentSchema, constraintSummary)
+                && expressions.isEmpty() && (orderBy.isEmpty() || sort != null);
+        long limit = !limitable || recordsRequest.getConstraints().getLimit() == DEFAULT_NO_LIMIT ? Long.MAX_VALUE : recordsRequest.getConstraints().getLimit();
+        getLogger().info("sort[{}] limit[{}]", sort, limit);
+
+        getLogger().info("Querying collection {}", matchingCollectionNames);
+        DocDBRowWriter rowWriter = new DocDBRowWriter(recordsRequest.getConstraints(), documentFields, constantFields);
+
+        Function<MongoCollection<Document>, MongoIterable<Object[]>> collectionFunction = new Function<>() {
             @Override
-            public @NotNull FindIterable<Document> apply(@NotNull MongoCollection<Document> mongoCollection) {
-                return mongoCollection.find(query).projection(projection).batchSize(getBatchSize());
+            public @NotNull MongoIterable<Object[]> apply(@NotNull MongoCollection<Document> mongoCollection) {
+                MongoCollection<Document> collection = SplitUtils.applyReadPreference(recordsRequest.getSplit(), mongoCollection);
+                if (disableDirectDecoding) {
+                    return collection.find(query).projection(projection).sort(sort).batchSize(getBatchSize())
+                            .maxTime(getMaxTimeMillis(deadline), TimeUnit.MILLISECONDS).limit(getCursorLimit(limit, numResultRows.get()))
+                            .map(rowCodec::toRow);
+                }
+                return collection.withCodecRegistry(CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(rowCodec), collection.getCodecRegistry()))
+                        .find(query, Object[].class).projection(projection).sort(sort).batchSize(getBatchSize())
+                        .maxTime(getMaxTimeMillis(deadline), TimeUnit.MILLISECONDS).limit(getCursorLimit(limit, numResultRows.get()));
             }
-        })) {
-            numRows = 0;
-            numResultRows = new AtomicLong(0);
-            while (iterable.hasNext() && isQueryRunning.get()) {
-                numRows++;
-                spiller.writeRows((Block block, int rowNum) -> {
-                    Map<String, Object> doc = documentAsMap(iterable.next(), disableProjectionAndCasing);
-                    boolean matched = true;
-                    for (Field nextField : recordsRequest.getSchema().getFields()) {
-                        Object value = TypeUtils.coerce(nextField, doc.get(nextField.getName()));
-                        Types.MinorType fieldType = Types.getMinorTypeForArrowType(nextField.getType());
-                        try {
-                            switch (fieldType) {
-                                case LIST:
-                                case STRUCT:
-                                    matched &= block.offerComplexValue(nextField.getName(), rowNum, DEFAULT_FIELD_RESOLVER, value);
-                                    break;
-                                default:
-                                    matched &= block.offerValue(nextField.getName(), rowNum, value);
-                                    break;
-                            }
-                            if (!matched) {
-                                return 0;
+        };
+
+        String reactiveReadsEnvValue = getConfig().getOrDefault(REACTIVE_READS_ENV, "false").toLowerCase();
+        boolean reactiveReads = reactiveReadsEnvValue.equals("true");
+        getLogger().info("{} environment variable set to: {}. Resolved to: {}", REACTIVE_READS_ENV, reactiveReadsEnvValue, reactiveReads);
+
+        // Splits over many small collections read several of them at the same time, so that the latency of their first
+        // batches overlaps.
+        CollectionCursor<Object[]> iterable;
+        if (sort != null && matchingCollectionNames.size() > 1) {
+            iterable = new MergingMongoCursor<>(schemaName, matchingCollectionNames, client, makeRowComparator(documentFields, orderBy), collectionFunction);
+        } else if (reactiveReads) {
+            int bufferedDocuments = Integer.parseInt(getConfig().getOrDefault(REACTIVE_BUFFERED_DOCUMENTS_ENV, "1000"));
+            iterable = new ReactiveMongoCursor<>(schemaName, matchingCollectionNames, getOrCreateReactiveConn(recordsRequest.getSplit()),
+                    parallelCollections, bufferedDocuments, mongoCollection -> {
+                ReadPreference readPreference = SplitUtils.getReadPreference(recordsRequest.getSplit());
+                com.mongodb.reactivestreams.client.MongoCollection<Document> collection = readPreference == null ? mongoCollection : mongoCollection.withReadPreference(readPreference);
+                if (disableDirectDecoding) {
+                    return ReactiveMongoCursor.map(collection.find(query).projection(projection).sort(sort).batchSize(getBatchSize())
+                            .maxTime(getMaxTimeMillis(deadline), TimeUnit.MILLISECONDS).limit(getCursorLimit(limit, numResultRows.get())), rowCodec::toRow);
+                }
+                return collection.withCodecRegistry(CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(rowCodec), collection.getCodecRegistry()))
+                        .find(query, Object[].class).projection(projection).sort(sort).batchSize(getBatchSize())
+                        .maxTime(getMaxTimeMillis(deadline), TimeUnit.MILLISECONDS).limit(getCursorLimit(limit, numResultRows.get()));
+            });
+        } else if (parallelCollections > 1 && matchingCollectionNames.size() > 1) {
+            iterable = new ParallelMongoCursor<>(schemaName, matchingCollectionNames, client, parallelCollections, parallelCollections * Math.max(prefetchBatches, 1), collectionFunction);
+        } else {
+            iterable = new ChainedMongoCursor<>(schemaName, matchingCollectionNames, client, prefetchBatches, collectionFunction);
+        }
+
+        // The cursor is closed as soon as the query is no longer running, which kills it on the server even while the
+        // reader is waiting for a batch, although a getMore in flight only ends once it returns or reaches maxTimeMS.
+        // Reading the closed cursor fails, which is expected once the query was cancelled.
+        try (iterable; CursorWatcher watcher = new CursorWatcher(isQueryRunning, iterable, QUERY_STATUS_POLL_MILLIS)) {
+            try {
+                // Documents are written in batches to amortize the per-call bookkeeping of the spiller, while the
+                // query status is still checked between batches. Rows which don't satisfy the constraints are
+                // overwritten by the next row.
+                while (numResultRows.get() < limit && iterable.hasNext() && isQueryRunning.get()) {
+                    spiller.writeRows((Block block, int startRowNum) -> {
+                        int rowNum = startRowNum;
+                        for (int read = 0; read < MAX_ROWS_PER_WRITE && numResultRows.get() + rowNum - startRowNum < limit && iterable.hasNext(); read++) {
+                            Object[] row = iterable.next();
+                            if (rowWriter.writeRow(block, rowNum, row, collectionConstants.get(iterable.getCurrentCollection()))) {
+                                rowNum++;
                             }
-                        } catch (Exception ex) {
-                            throw new RuntimeException("Error while processing field " + nextField.getName(), ex);
+                            numRows.getAndIncrement();
                         }
-                    }
 
-                    numResultRows.getAndIncrement();
-                    return 1;
-                });
+                        numResultRows.getAndAdd(rowNum - startRowNum);
+                        return rowNum - startRowNum;
+                    });
+                }
+            } catch (RuntimeException ex) {
+                if (!watcher.isCancelled()) {
+                    throw ex;
+                }
+                getLogger().info("Stopped reading as the query is no longer running", ex);
             }
         }
 
-        getLogger().info("numRows[{}] numResultRows[{}]", numRows, numResultRows.get());
+        getLogger().info("numRows[{}] numResultRows[{}]", numRows.get(), numResultRows.get());
     }
 
-    private Map<String, Object> documentAsMap(Document document, boolean caseInsensitive) {
-        if (!caseInsensitive) {
-            return document;
+    /**
+     * Resolves the values of the fields captured from the name of the given collection, coerced to the types of the
+     * fields.
+     *
+     * @param tableName      The name of the table as seen by Athena.
+     * @param collectionName The name of a collection backing the table.
+     * @param constantFields The fields captured from the collection names.
+     * @return The value of every constant field keyed by the name of the field.
+     */
+    private Map<String, Object> getConstants(String tableName, String collectionName, List<Field> constantFields) {
+        Map<String, Object> constants = new LinkedHashMap<>();
+        Map<String, String> groups = getGlobHandler().getGroups(tableName, collectionName);
+        for (Field constantField : constantFields) {
+            Object value = groups.entrySet().stream()
+                    .filter(group -> group.getKey().equalsIgnoreCase(constantField.getName()))
+                    .findFirst()
+                    .map(Map.Entry::getValue)
+                    .orElse(null);
+            constants.put(constantField.getName(), TypeUtils.coerce(constantField, value));
         }
+        return constants;
+    }
 
-        TreeMap<String, Object> caseInsensitiveMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-        caseInsensitiveMap.putAll(document);
-        return caseInsensitiveMap;
+    /**
+     * Checks that none of the collections holds a document whose sorted fields hold values of another type than their
+     * columns, which is a lookup on an index on the sorted fields.
+     *
+     * @param split                The split to read, whose read preference is used.
+     * @param database             The database of the collections.
+     * @param collectionNames      The collections to check.
+     * @param unorderedValuesQuery The query matching the documents with values of other types.
+     * @return True if every collection is sorted by MongoDB like Athena orders its rows.
+     */
+    private boolean hasOrderedValues(Split split, MongoDatabase database, List<String> collectionNames, Document unorderedValuesQuery) {
+        for (String collectionName : collectionNames) {
+            MongoCollection<Document> collection = SplitUtils.applyReadPreference(split, database.getCollection(collectionName));
+            if (collection.find(unorderedValuesQuery).projection(new Document("_id", 1)).limit(1).first() != null) {
+                getLogger().info("Not sorting as collection {} holds values of other types than their columns", collectionName);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a comparator which orders rows like MongoDB orders the documents for the sort created by
+     * {@link QueryUtils#makeSort(Schema, List)}, with null values first in ascending and last in descending order.
+     *
+     * @param fields  The fields of the rows.
+     * @param orderBy The fields to order by.
+     * @return The comparator of the rows.
+     */
+    private Comparator<Object[]> makeRowComparator(List<Field> fields, List<OrderByField> orderBy) {
+        Comparator<Object[]> comparator = (left, right) -> 0;
+        for (OrderByField orderByField : orderBy) {
+            int index = fields.stream().map(Field::getName).collect(Collectors.toList()).indexOf(orderByField.getColumnName());
+            Comparator<Object> values = Comparator.nullsFirst(DoGetRecords::compareValues);
+            comparator = comparator.thenComparing(row -> row[index], orderByField.getDirection().isAscending() ? values : values.reversed());
+        }
+        return comparator;
+    }
+
+    /**
+     * Compares two values of a sort field like MongoDB does, given that they are of the type of their column. Strings
+     * are compared by their code points, which is the order of their UTF-8 bytes that MongoDB compares.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right);
+        } else if (left instanceof String && right instanceof String) {
+            return Arrays.compare(((String) left).codePoints().toArray(), ((String) right).codePoints().toArray());
+        }
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    private static int compareNumbers(Number left, Number right) {
+        double leftValue = left.doubleValue();
+        double rightValue = right.doubleValue();
+        if (!Double.isFinite(leftValue) || !Double.isFinite(rightValue)) {
+            return Double.compare(leftValue, rightValue);
+        }
+        return new BigDecimal(left.toString()).compareTo(new BigDecimal(right.toString()));
+    }
+
+    /**
+     * Gets the number of documents that a cursor opened now should be limited to.
+     *
+     * @param limit         The pushed down limit of the request, or Long.MAX_VALUE if there is none.
+     * @param numResultRows  The number of rows that were already written.
+     * @return The number of rows that are still missing, or zero for no limit.
+     */
+    private int getCursorLimit(long limit, long numResultRows) {
+        return limit == Long.MAX_VALUE ? 0 : (int) Math.min(Math.max(limit - numResultRows, 1), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the time in milliseconds that a cursor opened now may take on the server, so that scans are stopped by the
+     * server once the Lambda function is about to time out.
+     *
+     * @param deadline The time at which the scans should be stopped, or zero if there is no such time.
+     * @return The time in milliseconds that a cursor may take, or zero for no limit.
+     */
+    private long getMaxTimeMillis(long deadline) {
+        return deadline == 0 ? 0 : Math.max(deadline - System.currentTimeMillis(), 1);
     }
 
     Map<String, String> getConfig();
@@ -148,6 +366,8 @@ public interface DoGetRecords {
 
     MongoClient getOrCreateConn(Split split);
 
+    com.mongodb.reactivestreams.client.MongoClient getOrCreateReactiveConn(Split split);
+
     Logger getLogger();
 
     GlobHandler getGlobHandler();
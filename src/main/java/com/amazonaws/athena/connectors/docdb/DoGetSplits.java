@@ -2,32 +2,409 @@ package com.amazonaws.athena.connectors.docdb;
 
 import static com.amazonaws.athena.connectors.docdb.DocDBMetadataHandler.DOCDB_CONN_STR;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.domain.Split;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
 import com.amazonaws.athena.connector.lambda.handlers.GlueMetadataHandler;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
+import com.mongodb.ReadPreference;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 
 public interface DoGetSplits {
 
+    // The number of bytes that a single split should read. Larger collections are divided into ranges while
+    // smaller collections of multi-tenant tables are packed together.
+    String SPLIT_TARGET_BYTES_ENV = "split_target_bytes";
+    // The number of documents that a single split should read, which caps splits of collections with tiny documents.
+    String SPLIT_TARGET_DOCS_ENV = "split_target_docs";
+    // The maximum number of splits that a single collection is divided into.
+    String MAX_SPLITS_PER_COLLECTION_ENV = "max_splits_per_collection";
+    // The maximum number of collections that are packed into a single split.
+    String MAX_COLLECTIONS_PER_SPLIT_ENV = "max_collections_per_split";
+    // The number of sampled documents per split from which the split boundaries are picked.
+    int SAMPLES_PER_SPLIT = 10;
+    // The number of splits after which the response is paginated with a continuation token.
+    int MAX_SPLITS_PER_REQUEST = 1000;
+    String ID_FIELD = "_id";
+    // The read preference of the splits, e.g. secondary. Can be overridden per catalog by prefixing the catalog name.
+    String READ_PREFERENCE_ENV = "read_preference";
+    // The tag sets of the read preference, separated by semicolons, each being a comma separated list of name:value
+    // tags, e.g. nodeType:ANALYTICS;region:us-east-1. Splits are rotated across the tag sets.
+    String READ_PREFERENCE_TAGS_ENV = "read_preference_tags";
+    // The maximum replication lag in seconds of the members that the splits may be read from.
+    String MAX_STALENESS_SECONDS_ENV = "max_staleness_seconds";
+    // The indexed date fields on which the collections of a table are divided into time windows, as a comma separated
+    // list of table:field pairs, e.g. events:createdAt.
+    String SPLIT_DATE_FIELDS_ENV = "split_date_fields";
+    // The ISO-8601 duration of the time windows that the collections are divided into.
+    String SPLIT_DATE_WINDOW_ENV = "split_date_window";
+
     /**
-     * Since our connector does not support parallel scans we generate a single Split and include the connection details
-     * as a property on the split so that the RecordHandler has easy access to it.
+     * Resolves the collections backing the requested table and plans the splits which read them in parallel:
+     * <p>
+     * 1. Collections larger than the target split size are divided into ranges of the _id field. The boundaries of the
+     * ranges are picked from a random sample of the collection's _id values so that each range holds roughly the same
+     * number of documents. Collections of sharded clusters are instead divided into ranges of their shard key along the
+     * chunk boundaries, so that every split is routed to a single shard rather than scattered across all of them.
+     * Collections of tables with a configured date field are instead divided into time windows of that field, so that
+     * every split is an index range scan.
+     * 2. Smaller collections, typically the tenants of a multi-tenant table, are packed together into splits of up to
+     * the target split size.
+     * <p>
+     * The size of a collection is read from its storage statistics and a split reads up to the target number of bytes
+     * or the target number of documents, whichever is reached first. This way each split does a similar amount of work
+     * regardless of how wide the documents of each collection are.
+     * <p>
+     * If the collections were resolved while partitioning the table, only the collections whose partitions survived
+     * pruning are read.
+     * <p>
+     * If a read preference is configured, the splits are rotated across its tag sets so that heavy scans are spread
+     * across the eligible members of the replica set rather than all landing on the same one.
+     * <p>
+     * The names of the collections and the connection details are included as properties on every split so that the
+     * RecordHandler has easy access to them. Tables backed by a large number of collections are paginated using the
+     * index of the next collection to plan as the continuation token.
      *
      * @see GlueMetadataHandler
      */
     default GetSplitsResponse doGetSplits(BlockAllocator blockAllocator, GetSplitsRequest request) {
+        String schemaName = request.getTableName().getSchemaName();
+        String tableName = request.getTableName().getTableName();
+        long targetBytes = Math.max(Long.parseLong(getConfig().getOrDefault(SPLIT_TARGET_BYTES_ENV, "268435456")), 1);
+        long targetDocs = Math.max(Long.parseLong(getConfig().getOrDefault(SPLIT_TARGET_DOCS_ENV, "1000000")), 1);
+        int maxSplits = Integer.parseInt(getConfig().getOrDefault(MAX_SPLITS_PER_COLLECTION_ENV, "500"));
+        int maxCollections = Integer.parseInt(getConfig().getOrDefault(MAX_COLLECTIONS_PER_SPLIT_ENV, "100"));
+
+        String dateField = getDateField(tableName);
+        ValueSet dateConstraint = dateField == null ? null : request.getConstraints().getSummary().entrySet().stream()
+                .filter(entry -> entry.getKey().equalsIgnoreCase(dateField))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+        List<ReadPreference> readPreferences = getReadPreferences(request);
+        MongoClient client = getOrCreateConn(request);
+        MongoDatabase database = client.getDatabase(schemaName);
+        List<String> collectionNames = getPartitionedCollections(request);
+        if (collectionNames == null) {
+            collectionNames = getGlobHandler().resolveCollections(tableName, database.listCollectionNames());
+        }
+
+        Set<Split> splits = new HashSet<>();
+        List<String> packedNames = new ArrayList<>();
+        double packedWeight = 0;
+        int next = request.hasContinuationToken() ? Integer.parseInt(request.getContinuationToken()) : 0;
+        while (next < collectionNames.size() && splits.size() < MAX_SPLITS_PER_REQUEST) {
+            String collectionName = collectionNames.get(next++);
+            MongoCollection<Document> collection = database.getCollection(collectionName);
+            CollectionStats stats = CollectionStats.of(collection);
+            double weight = stats.getSplitWeight(targetBytes, targetDocs);
+            getLogger().info("Collection {} has {} and a split weight of {}", collectionName, stats, weight);
+            String rangeField = dateField;
+            // Only collections which are too heavy for a single split are divided, the others are packed together.
+            List<Object> boundaries = dateField == null || weight <= 1 ? List.of() : getDateBoundaries(collection, dateField, dateConstraint, maxSplits);
+            if (boundaries.isEmpty() && weight > 1) {
+                int rangeCount = Math.max(Math.min(maxSplits, (int) Math.ceil(weight)), 1);
+                List<ShardUtils.Chunk> chunks = ShardUtils.getChunks(client, collection.getNamespace());
+                if (!chunks.isEmpty()) {
+                    rangeField = chunks.get(0).getField();
+                    boundaries = ShardUtils.getBoundaries(chunks, rangeCount);
+                }
+                if (boundaries == null || boundaries.isEmpty()) {
+                    rangeField = ID_FIELD;
+                    boundaries = getIdBoundaries(collection, rangeCount);
+                }
+            }
+
+            if (!boundaries.isEmpty()) {
+                getLogger().info("Dividing collection {} on {} into {} splits", collectionName, rangeField, boundaries.size() + 1);
+                for (int i = 0; i <= boundaries.size(); i++) {
+                    Split.Builder split = makeSplit(request, List.of(collectionName), readPreferences, splits.size());
+                    splits.add(SplitUtils.withRange(split, rangeField,
+                            i == 0 ? null : boundaries.get(i - 1),
+                            i == boundaries.size() ? null : boundaries.get(i)).build());
+                }
+            } else {
+                if (!packedNames.isEmpty() && (packedWeight + weight > 1 || packedNames.size() >= maxCollections)) {
+                    splits.add(makeSplit(request, packedNames, readPreferences, splits.size()).build());
+                    packedNames = new ArrayList<>();
+                    packedWeight = 0;
+                }
+                packedNames.add(collectionName);
+                packedWeight += weight;
+            }
+        }
+
+        if (!packedNames.isEmpty() || splits.isEmpty()) {
+            splits.add(makeSplit(request, packedNames, readPreferences, splits.size()).build());
+        }
+
+        String continuationToken = next < collectionNames.size() ? String.valueOf(next) : null;
+        getLogger().info("Generated {} splits for {} of {} collections of table {}", splits.size(), next,
+                collectionNames.size(), request.getTableName().getQualifiedTableName());
+        return new GetSplitsResponse(request.getCatalogName(), splits, continuationToken);
+    }
+
+    /**
+     * Looks up the date field on which the collections of the given table should be divided into time windows.
+     *
+     * @param tableName The name of the table as seen by Athena.
+     * @return The name of the date field or null if the table has no date field configured.
+     */
+    private String getDateField(String tableName) {
+        String dateFields = getConfig().get(SPLIT_DATE_FIELDS_ENV);
+        if (dateFields == null || dateFields.isBlank()) {
+            return null;
+        }
+
+        for (String dateField : dateFields.split(",")) {
+            String[] tableAndField = dateField.trim().split(":", 2);
+            if (tableAndField.length != 2) {
+                throw new IllegalArgumentException("Invalid date field " + dateField + " in " + SPLIT_DATE_FIELDS_ENV);
+            }
+            if (tableAndField[0].equalsIgnoreCase(tableName)) {
+                return tableAndField[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks the dates at which the given collection should be divided into windows of the configured duration. The
+     * time span is bounded by the oldest and the newest date in the collection, both read from the index on the date
+     * field, and narrowed down to the span of the query's own constraint on the field, if any.
+     * <p>
+     * If the span holds more windows than a collection may be divided into, the windows are widened accordingly.
+     *
+     * @param collection The collection that is being split.
+     * @param field      The indexed date field on which the collection is divided.
+     * @param constraint The constraint of the query on the date field or null if there is none.
+     * @param maxSplits  The maximum number of windows the collection may be divided into.
+     * @return The sorted boundaries of the windows or an empty list if the collection should not be divided.
+     */
+    private List<Object> getDateBoundaries(MongoCollection<Document> collection, String field, ValueSet constraint, int maxSplits) {
+        Bson isDate = Filters.type(field, BsonType.DATE_TIME);
+        Document oldest = collection.find(isDate).projection(Projections.include(field)).sort(Sorts.ascending(field)).first();
+        Document newest = collection.find(isDate).projection(Projections.include(field)).sort(Sorts.descending(field)).first();
+        if (oldest == null || newest == null) {
+            return List.of();
+        }
+
+        // The type filter also matches arrays holding dates, whose dates can't be told apart from the others.
+        List<String> path = List.of(field.split("\\."));
+        Object oldestDate = oldest.getEmbedded(path, Object.class);
+        Object newestDate = newest.getEmbedded(path, Object.class);
+        if (!(oldestDate instanceof Date) || !(newestDate instanceof Date)) {
+            return List.of();
+        }
+        long low = ((Date) oldestDate).getTime();
+        long high = ((Date) newestDate).getTime();
+        if (constraint instanceof SortedRangeSet && !constraint.isNone() && !constraint.isAll()) {
+            Range span = constraint.getSpan();
+            if (!span.getLow().isLowerUnbounded()) {
+                low = Math.max(low, toEpochMilli(span.getLow().getValue(), low));
+            }
+            if (!span.getHigh().isUpperUnbounded()) {
+                high = Math.min(high, toEpochMilli(span.getHigh().getValue(), high));
+            }
+        }
+
+        long window = Duration.parse(getConfig().getOrDefault(SPLIT_DATE_WINDOW_ENV, "P7D")).toMillis();
+        window = Math.max(window, (high - low) / Math.max(maxSplits, 1) + 1);
+        List<Object> boundaries = new ArrayList<>();
+        for (long boundary = low + window; boundary <= high; boundary += window) {
+            boundaries.add(new Date(boundary));
+        }
+        return boundaries;
+    }
+
+    /**
+     * Converts the value of a date constraint to milliseconds since the epoch, interpreting local dates as UTC like
+     * the driver does. Numbers are the days since the epoch of DATEDAY columns.
+     */
+    private long toEpochMilli(Object value, long defaultValue) {
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant().toEpochMilli();
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Number) {
+            return TimeUnit.DAYS.toMillis(((Number) value).longValue());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reads the names of the collections which survived partition pruning from the partitions of the request.
+     *
+     * @param request The request for which the splits are generated.
+     * @return The sorted names of the collections or null if the partitions don't name their collections.
+     * @see DoGetPartitions
+     */
+    private List<String> getPartitionedCollections(GetSplitsRequest request) {
+        Block partitions = request.getPartitions();
+        if (partitions.getFields().stream().noneMatch(field -> DoGetPartitions.COLLECTION_NAME_COL.equals(field.getName()))) {
+            return null;
+        }
+
+        FieldReader collectionName = partitions.getFieldReader(DoGetPartitions.COLLECTION_NAME_COL);
+        List<String> collectionNames = new ArrayList<>();
+        for (int i = 0; i < partitions.getRowCount(); i++) {
+            collectionName.setPosition(i);
+            if (collectionName.isSet()) {
+                collectionNames.add(collectionName.readText().toString());
+            }
+        }
+        Collections.sort(collectionNames);
+        return collectionNames;
+    }
+
+    /**
+     * Creates the builder of a split which reads the given collections.
+     *
+     * @param request         The request for which the splits are generated.
+     * @param collectionNames The names of the collections that the split reads.
+     * @param readPreferences The read preferences that the splits are rotated across, if any.
+     * @param index           The index of the split, which determines its read preference.
+     * @return The builder of the split.
+     */
+    private Split.Builder makeSplit(GetSplitsRequest request, List<String> collectionNames, List<ReadPreference> readPreferences, int index) {
         //Every split must have a unique location if we wish to spill to avoid failures
-        SpillLocation spillLocation = makeSpillLocation(request);
+        Split.Builder builder = Split.newBuilder(makeSpillLocation(request), makeEncryptionKey())
+                .add(DOCDB_CONN_STR, getConnStr(request));
+        if (!readPreferences.isEmpty()) {
+            SplitUtils.withReadPreference(builder, readPreferences.get(index % readPreferences.size()));
+        }
+        return SplitUtils.withCollections(builder, collectionNames);
+    }
 
-        //Since our connector does not support parallel reads we return a fixed split.
-        return new GetSplitsResponse(request.getCatalogName(),
-                Split.newBuilder(spillLocation, makeEncryptionKey())
-                        .add(DOCDB_CONN_STR, getConnStr(request))
-                        .build());
+    /**
+     * Builds the read preferences that the splits are rotated across from the configuration of the catalog. Every
+     * read preference lists all the configured tag sets, each starting with a different one, so that the splits are
+     * spread across the members of every tag set while still falling back to the other tag sets if no member of the
+     * first one is eligible.
+     *
+     * @param request The request for which the splits are generated.
+     * @return The read preferences, or an empty list if the splits should use the default read preference.
+     */
+    private List<ReadPreference> getReadPreferences(MetadataRequest request) {
+        String mode = getCatalogConfig(request, READ_PREFERENCE_ENV);
+        if (mode == null) {
+            return List.of();
+        }
+
+        String tags = getCatalogConfig(request, READ_PREFERENCE_TAGS_ENV);
+        String maxStaleness = getCatalogConfig(request, MAX_STALENESS_SECONDS_ENV);
+        List<TagSet> tagSets = new ArrayList<>();
+        if (tags != null && !tags.isBlank()) {
+            for (String tagSet : tags.split(";", -1)) {
+                List<Tag> tagList = new ArrayList<>();
+                for (String tag : tagSet.split(",")) {
+                    if (tag.isBlank()) {
+                        continue;
+                    }
+                    String[] nameAndValue = tag.split(":", 2);
+                    if (nameAndValue.length != 2) {
+                        throw new IllegalArgumentException("Invalid tag " + tag + " in " + READ_PREFERENCE_TAGS_ENV);
+                    }
+                    tagList.add(new Tag(nameAndValue[0].trim(), nameAndValue[1].trim()));
+                }
+                tagSets.add(new TagSet(tagList));
+            }
+        }
+
+        if (tagSets.isEmpty() && maxStaleness == null) {
+            return List.of(ReadPreference.valueOf(mode));
+        }
+
+        List<ReadPreference> readPreferences = new ArrayList<>();
+        for (int i = 0; i < Math.max(tagSets.size(), 1); i++) {
+            List<TagSet> rotatedTagSets = new ArrayList<>(tagSets);
+            Collections.rotate(rotatedTagSets, -i);
+            readPreferences.add(maxStaleness == null
+                    ? ReadPreference.valueOf(mode, rotatedTagSets)
+                    : ReadPreference.valueOf(mode, rotatedTagSets, Long.parseLong(maxStaleness), TimeUnit.SECONDS));
+        }
+        getLogger().info("Rotating splits across read preferences {}", readPreferences);
+        return readPreferences;
+    }
+
+    /**
+     * Reads a configuration value, preferring the value specific to the catalog of the request if there is one.
+     */
+    private String getCatalogConfig(MetadataRequest request, String key) {
+        return getConfig().getOrDefault(request.getCatalogName() + "_" + key, getConfig().get(key));
+    }
+
+    /**
+     * Picks the _id values at which the given collection should be divided into the requested number of ranges of
+     * roughly the same number of documents. The boundaries are picked from a sorted random sample of _id values and are
+     * all of the same BSON type, as range predicates only match values of the same type as the bounds.
+     *
+     * @param collection The collection that is being split.
+     * @param rangeCount The number of ranges the collection should be divided into.
+     * @return The sorted, distinct boundaries or an empty list if the collection should be read by a single split.
+     */
+    private List<Object> getIdBoundaries(MongoCollection<Document> collection, int rangeCount) {
+        if (rangeCount <= 1) {
+            return List.of();
+        }
+
+        List<Object> samples = new ArrayList<>();
+        collection.aggregate(List.of(
+                        Aggregates.sample(rangeCount * SAMPLES_PER_SPLIT),
+                        Aggregates.project(Projections.include(ID_FIELD)),
+                        Aggregates.sort(Sorts.ascending(ID_FIELD))))
+                .forEach(document -> Optional.ofNullable(document.get(ID_FIELD)).ifPresent(samples::add));
+        if (samples.isEmpty()) {
+            return List.of();
+        }
+
+        Class<?> idType = samples.get(samples.size() / 2).getClass();
+        List<Object> boundaries = new ArrayList<>();
+        for (int i = 1; i < rangeCount; i++) {
+            Object boundary = samples.get(i * samples.size() / rangeCount);
+            if (boundary.getClass() == idType && (boundaries.isEmpty() || !Objects.equals(boundaries.get(boundaries.size() - 1), boundary))) {
+                boundaries.add(boundary);
+            }
+        }
+        return boundaries;
     }
 
     String getConnStr(MetadataRequest request);
@@ -35,4 +412,12 @@ public interface DoGetSplits {
     EncryptionKey makeEncryptionKey();
 
     SpillLocation makeSpillLocation(GetSplitsRequest request);
+
+    MongoClient getOrCreateConn(MetadataRequest request);
+
+    Map<String, String> getConfig();
+
+    Logger getLogger();
+
+    GlobHandler getGlobHandler();
 }
@@ -1,8 +1,9 @@
 package com.amazonaws.athena.connectors.docdb;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
@@ -14,7 +15,6 @@ import com.amazonaws.athena.connector.lambda.metadata.GetTableRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetTableResponse;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
 import com.amazonaws.athena.connectors.docdb.schema.SchemaProvider;
-import com.google.common.collect.Streams;
 import com.mongodb.Function;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
@@ -34,8 +34,12 @@ public interface DoGetTable {
      * filter out any results that don't have the DOCDB_METADATA_FLAG set. If no matching results were found in Glue,
      * then we resort to inferring the schema of the DocumentDB collection using SchemaUtils.inferSchema(...). If there
      * is no such collection, the operation will fail.
+     * <p>
+     * The fields captured from the collection names of a multi-tenant table are reported as partition columns so that
+     * queries filtering on them only read the matching collections.
      *
      * @see GlueMetadataHandler
+     * @see DoGetPartitions
      */
     @SuppressWarnings("RedundantThrows")
     default GetTableResponse doGetTable(GetTableRequest request) throws Exception {
@@ -45,28 +49,11 @@ public interface DoGetTable {
         String tableName = request.getTableName().getTableName();
         String schemaName = request.getTableName().getSchemaName();
 
-        List<String> collectionNames;
-        if (getGlobHandler().isMultiTenant(tableName)) {
-            collectionNames = Streams.stream(client.getDatabase(schemaName).listCollectionNames())
-                    .filter(collectionName -> {
-                        if (getGlobHandler().test(tableName, collectionName)) {
-                            getLogger().info("Collection {} matches requested table {}", collectionName, tableName);
-                            return true;
-                        } else {
-                            getLogger().info("Collection {} doesn't match requested table {}", collectionName, tableName);
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-        } else {
-            collectionNames = Streams.stream(client.getDatabase(schemaName).listCollectionNames())
-                    .filter(s -> s.equalsIgnoreCase(tableName))
-                    .collect(Collectors.toList());
-        }
+        List<String> collectionNames = getGlobHandler().resolveCollections(tableName, client.getDatabase(schemaName).listCollectionNames());
 
         getLogger().info("Querying collection {}", collectionNames);
 
-        SchemaBuilder schema = getSchemaProvider().getSchema(new ChainedMongoCursor(request.getTableName().getSchemaName(), collectionNames, client, new Function<>() {
+        SchemaBuilder schema = getSchemaProvider().getSchema(new ChainedMongoCursor<>(request.getTableName().getSchemaName(), collectionNames, client, new Function<MongoCollection<Document>, FindIterable<Document>>() {
             @Override
             public @NotNull FindIterable<Document> apply(@NotNull MongoCollection<Document> mongoCollection) {
                 return mongoCollection.find()
@@ -75,8 +62,9 @@ public interface DoGetTable {
             }
         }));
 
-        getGlobHandler().getFields(request.getTableName().getTableName()).forEach(schema::addStringField);
-        return new GetTableResponse(request.getCatalogName(), request.getTableName(), schema.build());
+        Set<String> partitionCols = new LinkedHashSet<>(getGlobHandler().getFields(tableName));
+        partitionCols.forEach(schema::addStringField);
+        return new GetTableResponse(request.getCatalogName(), request.getTableName(), schema.build(), partitionCols);
     }
 
     MongoClient getOrCreateConn(MetadataRequest request);
@@ -36,6 +36,7 @@ public class DocDBConnectionFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(DocDBConnectionFactory.class);
     private final Map<String, MongoClient> clientCache = new HashMap<>();
+    private final Map<String, com.mongodb.reactivestreams.client.MongoClient> reactiveClientCache = new HashMap<>();
 
     /**
      * Used to get an existing, pooled, connection or to create a new connection
@@ -56,6 +57,18 @@ public class DocDBConnectionFactory {
         return result;
     }
 
+    /**
+     * Used to get an existing, pooled, connection of the reactive streams driver or to create a new connection for the
+     * given connection string. Connections of the reactive streams driver aren't tested, as they connect lazily.
+     *
+     * @param connectionString MongoClient connection details
+     * @return A reactive MongoClient for the given connection string.
+     */
+    public synchronized com.mongodb.reactivestreams.client.MongoClient getOrCreateReactiveConn(String connectionString) {
+        logger.info("Setting up reactive connection to {}", connectionString);
+        return reactiveClientCache.computeIfAbsent(connectionString, com.mongodb.reactivestreams.client.MongoClients::create);
+    }
+
     /**
      * Runs a 'quick' test on the connection and then returns it if it passes.
      */
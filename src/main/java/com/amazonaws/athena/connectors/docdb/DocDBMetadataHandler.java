@@ -19,18 +19,27 @@
  */
 package com.amazonaws.athena.connectors.docdb;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.arrow.util.VisibleForTesting;
 import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.athena.connector.lambda.QueryStatusChecker;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
 import com.amazonaws.athena.connector.lambda.data.BlockWriter;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.spill.SpillLocation;
 import com.amazonaws.athena.connector.lambda.handlers.GlueMetadataHandler;
+import com.amazonaws.athena.connector.lambda.metadata.GetDataSourceCapabilitiesRequest;
+import com.amazonaws.athena.connector.lambda.metadata.GetDataSourceCapabilitiesResponse;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
 import com.amazonaws.athena.connector.lambda.metadata.GetTableLayoutRequest;
@@ -42,6 +51,11 @@ import com.amazonaws.athena.connector.lambda.metadata.ListTablesRequest;
 import com.amazonaws.athena.connector.lambda.metadata.ListTablesResponse;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
 import com.amazonaws.athena.connector.lambda.metadata.glue.GlueFieldLexer;
+import com.amazonaws.athena.connector.lambda.metadata.optimizations.DataSourceOptimizations;
+import com.amazonaws.athena.connector.lambda.metadata.optimizations.OptimizationSubType;
+import com.amazonaws.athena.connector.lambda.metadata.optimizations.pushdown.ComplexExpressionPushdownSubType;
+import com.amazonaws.athena.connector.lambda.metadata.optimizations.pushdown.LimitPushdownSubType;
+import com.amazonaws.athena.connector.lambda.metadata.optimizations.pushdown.TopNPushdownSubType;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKeyFactory;
 import com.amazonaws.athena.connectors.docdb.schema.DefaultSchemaProvider;
@@ -61,7 +75,7 @@ import com.mongodb.client.MongoClient;
  * 2. Attempts to resolve sensitive fields such as DocDB connection strings via SecretsManager so that you can substitute
  * variables with values from by doing something like:
  */
-public class DocDBMetadataHandler extends AbstractMetadataHandler implements DoListSchemaNames, DoListTableNames, DoGetTable, DoGetSplits {
+public class DocDBMetadataHandler extends AbstractMetadataHandler implements DoListSchemaNames, DoListTableNames, DoGetTable, DoGetPartitions, DoGetSplits {
     //Field name used to store the connection string as a property on Split objects.
     protected static final String DOCDB_CONN_STR = "connStr";
     private static final Logger logger = LoggerFactory.getLogger(DocDBMetadataHandler.class);
@@ -102,6 +116,11 @@ public class DocDBMetadataHandler extends AbstractMetadataHandler implements DoL
         return connectionFactory.getOrCreateConn(endpoint);
     }
 
+    @Override
+    public Map<String, String> getConfig() {
+        return configOptions;
+    }
+
     @Override
     public Logger getLogger() {
         return logger;
@@ -131,14 +150,14 @@ public class DocDBMetadataHandler extends AbstractMetadataHandler implements DoL
         return conStr;
     }
 
-    /**
-     * Our table doesn't support complex layouts or partitioning so we simply make this method a NoOp.
-     *
-     * @see GlueMetadataHandler
-     */
+    @Override
+    public void enhancePartitionSchema(SchemaBuilder partitionSchemaBuilder, GetTableLayoutRequest request) {
+        DoGetPartitions.super.enhancePartitionSchema(partitionSchemaBuilder, request);
+    }
+
     @Override
     public void getPartitions(BlockWriter blockWriter, GetTableLayoutRequest request, QueryStatusChecker queryStatusChecker) {
-        //NoOp as we do not support partitioning.
+        DoGetPartitions.super.getPartitions(blockWriter, request, queryStatusChecker::isQueryRunning);
     }
 
     @Override
@@ -164,6 +183,34 @@ public class DocDBMetadataHandler extends AbstractMetadataHandler implements DoL
         return DoGetTable.super.doGetTable(tableRequest);
     }
 
+    /**
+     * The fields captured from the collection names of a multi-tenant table are its partition columns, provided that
+     * the Glue table defines them. Glue lower cases the names of columns, so they're matched ignoring case.
+     */
+    @Override
+    protected Set<String> getPartitionColumns(GetTableRequest tableRequest, Schema schema) {
+        String tableName = schema.getCustomMetadata().getOrDefault(SOURCE_TABLE_PROPERTY, tableRequest.getTableName().getTableName());
+        Collection<String> globFields = globHandler.getFields(tableName);
+        return schema.getFields().stream()
+                .map(Field::getName)
+                .filter(name -> globFields.stream().anyMatch(name::equalsIgnoreCase))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Advertises that LIMIT and ORDER BY clauses can be pushed down, which DoGetRecords applies to its cursors, as well
+     * as the expressions which can be translated by {@link ExpressionUtils}.
+     */
+    @Override
+    public GetDataSourceCapabilitiesResponse doGetDataSourceCapabilities(BlockAllocator allocator, GetDataSourceCapabilitiesRequest request) {
+        Map<String, List<OptimizationSubType>> capabilities = Map.ofEntries(
+                DataSourceOptimizations.SUPPORTS_LIMIT_PUSHDOWN.withSupportedSubTypes(LimitPushdownSubType.INTEGER_CONSTANT),
+                DataSourceOptimizations.SUPPORTS_TOP_N_PUSHDOWN.withSupportedSubTypes(TopNPushdownSubType.SUPPORTS_ORDER_BY),
+                DataSourceOptimizations.SUPPORTS_COMPLEX_EXPRESSION_PUSHDOWN.withSupportedSubTypes(
+                        ComplexExpressionPushdownSubType.SUPPORTED_FUNCTION_EXPRESSION_TYPES.withSubTypeProperties(ExpressionUtils.getSupportedFunctions())));
+        return new GetDataSourceCapabilitiesResponse(request.getCatalogName(), capabilities);
+    }
+
     @Override
     public ListSchemasResponse doListSchemaNames(BlockAllocator blockAllocator, ListSchemasRequest request) throws Exception {
         return DoListSchemaNames.super.doListSchemaNames(blockAllocator, request);
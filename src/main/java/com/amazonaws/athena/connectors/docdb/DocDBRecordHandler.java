@@ -109,6 +109,23 @@ public class DocDBRecordHandler extends RecordHandler implements DoGetRecords {
         return connectionFactory.getOrCreateConn(endpoint);
     }
 
+    /**
+     * Gets the special DOCDB_CONN_STR property from the provided split and uses its contents to getOrCreate a client
+     * connection of the reactive streams driver, resolving secrets like {@link #getOrCreateConn(Split)} does.
+     *
+     * @param split The split to that we need to read and this DocDB instance to connector.
+     * @return A reactive MongoClient connected to the request DB instance.
+     */
+    @Override
+    public com.mongodb.reactivestreams.client.MongoClient getOrCreateReactiveConn(Split split) {
+        String conStr = split.getProperty(DOCDB_CONN_STR);
+        if (conStr == null) {
+            throw new RuntimeException(DOCDB_CONN_STR + " Split property is null! Unable to create connection.");
+        }
+        String endpoint = resolveSecrets(conStr);
+        return connectionFactory.getOrCreateReactiveConn(endpoint);
+    }
+
     @Override
     public Logger getLogger() {
         return logger;
@@ -0,0 +1,302 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static com.amazonaws.athena.connectors.docdb.DocDBFieldResolver.DEFAULT_FIELD_RESOLVER;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.arrow.vector.holders.NullableBigIntHolder;
+import org.apache.arrow.vector.holders.NullableBitHolder;
+import org.apache.arrow.vector.holders.NullableDateDayHolder;
+import org.apache.arrow.vector.holders.NullableDateMilliHolder;
+import org.apache.arrow.vector.holders.NullableFloat4Holder;
+import org.apache.arrow.vector.holders.NullableFloat8Holder;
+import org.apache.arrow.vector.holders.NullableIntHolder;
+import org.apache.arrow.vector.holders.NullableSmallIntHolder;
+import org.apache.arrow.vector.holders.NullableTinyIntHolder;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.writers.GeneratedRowWriter;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.BigIntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.BitExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.DateDayExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.DateMilliExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.DecimalExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.Float4Extractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.Float8Extractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.IntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.SmallIntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.TinyIntExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.VarBinaryExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.extractors.VarCharExtractor;
+import com.amazonaws.athena.connector.lambda.data.writers.fieldwriters.FieldWriter;
+import com.amazonaws.athena.connector.lambda.data.writers.fieldwriters.FieldWriterFactory;
+import com.amazonaws.athena.connector.lambda.data.writers.holders.NullableDecimalHolder;
+import com.amazonaws.athena.connector.lambda.data.writers.holders.NullableVarBinaryHolder;
+import com.amazonaws.athena.connector.lambda.data.writers.holders.NullableVarCharHolder;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+
+/**
+ * Writes rows decoded by the RowCodec into Blocks.
+ * <p>
+ * The schema is compiled once per request into a GeneratedRowWriter with a typed extractor per field, so writing a row
+ * doesn't look up vectors by name or dispatch on the type of the field. Complex fields, and the rare types without an
+ * extractor, are written by field writers bound to their vector instead.
+ */
+public class DocDBRowWriter {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final GeneratedRowWriter rowWriter;
+    private Object[] values;
+    private Object[] constants;
+
+    /**
+     * @param constraints    The constraints of the request, which the written values are checked against.
+     * @param documentFields The fields whose values are read from the documents, in the order of the decoded rows.
+     * @param constantFields The fields whose values are the same for every document of a collection.
+     */
+    public DocDBRowWriter(Constraints constraints, List<Field> documentFields, List<Field> constantFields) {
+        GeneratedRowWriter.RowWriterBuilder builder = GeneratedRowWriter.newBuilder(constraints);
+        for (int i = 0; i < documentFields.size(); i++) {
+            int index = i;
+            addField(builder, documentFields.get(i), () -> values[index]);
+        }
+        for (int i = 0; i < constantFields.size(); i++) {
+            int index = i;
+            addField(builder, constantFields.get(i), () -> constants[index]);
+        }
+        this.rowWriter = builder.build();
+    }
+
+    /**
+     * Writes a single row into the given Block, provided that its values satisfy the constraints of the request.
+     *
+     * @param block     The Block to write into.
+     * @param rowNum    The row to write.
+     * @param values    The values of the document fields, as decoded by the RowCodec.
+     * @param constants The values of the constant fields.
+     * @return True if the row satisfied the constraints and was written, false otherwise.
+     */
+    public boolean writeRow(Block block, int rowNum, Object[] values, Object[] constants) {
+        this.values = values;
+        this.constants = constants;
+        try {
+            return rowWriter.writeRow(block, rowNum, null);
+        } catch (Exception ex) {
+            throw new RuntimeException("Error while writing row " + rowNum, ex);
+        }
+    }
+
+    private void addField(GeneratedRowWriter.RowWriterBuilder builder, Field field, ValueSupplier value) {
+        String name = field.getName();
+        Types.MinorType minorType = Types.getMinorTypeForArrowType(field.getType());
+        switch (minorType) {
+            case VARCHAR:
+                builder.withExtractor(name, (VarCharExtractor) (Object context, NullableVarCharHolder dst) -> {
+                    Object next = value.get();
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? null : next.toString();
+                });
+                break;
+            case BIGINT:
+                builder.withExtractor(name, (BigIntExtractor) (Object context, NullableBigIntHolder dst) -> {
+                    Number next = toNumber(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next.longValue();
+                });
+                break;
+            case INT:
+                builder.withExtractor(name, (IntExtractor) (Object context, NullableIntHolder dst) -> {
+                    Number next = toNumber(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next.intValue();
+                });
+                break;
+            case SMALLINT:
+                builder.withExtractor(name, (SmallIntExtractor) (Object context, NullableSmallIntHolder dst) -> {
+                    Number next = toNumber(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next.shortValue();
+                });
+                break;
+            case TINYINT:
+                builder.withExtractor(name, (TinyIntExtractor) (Object context, NullableTinyIntHolder dst) -> {
+                    Number next = toNumber(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next.byteValue();
+                });
+                break;
+            case FLOAT8:
+                builder.withExtractor(name, (Float8Extractor) (Object context, NullableFloat8Holder dst) -> {
+                    Number next = toNumber(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next.doubleValue();
+                });
+                break;
+            case FLOAT4:
+                builder.withExtractor(name, (Float4Extractor) (Object context, NullableFloat4Holder dst) -> {
+                    Number next = toNumber(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next.floatValue();
+                });
+                break;
+            case BIT:
+                builder.withExtractor(name, (BitExtractor) (Object context, NullableBitHolder dst) -> {
+                    Boolean next = toBoolean(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next != null && next ? 1 : 0;
+                });
+                break;
+            case DATEMILLI:
+                builder.withExtractor(name, (DateMilliExtractor) (Object context, NullableDateMilliHolder dst) -> {
+                    Long next = toEpochMilli(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next;
+                });
+                break;
+            case DATEDAY:
+                builder.withExtractor(name, (DateDayExtractor) (Object context, NullableDateDayHolder dst) -> {
+                    Integer next = toEpochDay(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? 0 : next;
+                });
+                break;
+            case DECIMAL:
+                int scale = ((ArrowType.Decimal) field.getType()).getScale();
+                builder.withExtractor(name, (DecimalExtractor) (Object context, NullableDecimalHolder dst) -> {
+                    BigDecimal next = toBigDecimal(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next == null ? null : next.setScale(scale, RoundingMode.HALF_UP);
+                });
+                break;
+            case VARBINARY:
+                builder.withExtractor(name, (VarBinaryExtractor) (Object context, NullableVarBinaryHolder dst) -> {
+                    byte[] next = toBytes(value.get());
+                    dst.isSet = next == null ? 0 : 1;
+                    dst.value = next;
+                });
+                break;
+            case LIST:
+            case STRUCT:
+                builder.withFieldWriterFactory(name, (FieldWriterFactory) (vector, extractor, constraint) ->
+                        (FieldWriter) (Object context, int rowNum) -> {
+                            BlockUtils.setComplexValue(vector, rowNum, DEFAULT_FIELD_RESOLVER, value.get());
+                            return true;
+                        });
+                break;
+            default:
+                builder.withFieldWriterFactory(name, (FieldWriterFactory) (vector, extractor, constraint) ->
+                        (FieldWriter) (Object context, int rowNum) -> {
+                            Object next = value.get();
+                            if (constraint != null && !constraint.apply(next)) {
+                                return false;
+                            }
+                            BlockUtils.setValue(vector, rowNum, next);
+                            return true;
+                        });
+                break;
+        }
+    }
+
+    // The values of a row were already coerced by the RowCodec, but TypeUtils leaves values of other types than the
+    // type of the field as they are, e.g. when the type of a key differs between documents. Those are converted like
+    // BlockUtils.setValue would convert them, and values which can't be converted are written as null instead of
+    // failing the split.
+
+    private static Number toNumber(Object value) {
+        if (value == null || value instanceof Number) {
+            return (Number) value;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return parseDecimal(value.toString());
+    }
+
+    private static Boolean toBoolean(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue() > 0;
+        } else if ("true".equalsIgnoreCase(value.toString())) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value.toString())) {
+            return false;
+        }
+        return null;
+    }
+
+    private static Long toEpochMilli(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return null;
+    }
+
+    private static Integer toEpochDay(Object value) {
+        if (value instanceof Date) {
+            // Days before the epoch are negative, so the division has to round down rather than towards zero.
+            return (int) Math.floorDiv(((Date) value).getTime(), MILLIS_PER_DAY);
+        } else if (value instanceof LocalDateTime) {
+            return (int) ((LocalDateTime) value).toLocalDate().toEpochDay();
+        } else if (value instanceof LocalDate) {
+            return (int) ((LocalDate) value).toEpochDay();
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return null;
+    }
+
+    private static byte[] toBytes(Object value) {
+        if (value instanceof Binary) {
+            return ((Binary) value).getData();
+        } else if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return null;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Decimal128) {
+            return ((Decimal128) value).bigDecimalValue();
+        } else if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        return parseDecimal(value.toString());
+    }
+
+    private static BigDecimal parseDecimal(String value) {
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Supplies the value of a field of the row that is being written.
+     */
+    @FunctionalInterface
+    private interface ValueSupplier {
+        Object get();
+    }
+}
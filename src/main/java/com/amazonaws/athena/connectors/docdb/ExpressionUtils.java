@@ -0,0 +1,347 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.Text;
+import org.bson.Document;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.ConstantExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.FederationExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.FunctionCallExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.VariableExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.functions.StandardFunctions;
+
+/**
+ * Collection of helper methods which translate the complex expressions that Athena pushes down into {@code $expr}
+ * aggregation expressions, so that they are evaluated by DocumentDB instead of after the documents were read.
+ * <p>
+ * Every key is converted to the type of its column before it is used, like the documents are coerced when they are
+ * read, so that the expression sees the same values as Athena. Values which can't be converted become null. Where SQL
+ * evaluates an expression to true, the translated expression is true as well, but where SQL evaluates it to null, the
+ * translated expression may be true, so the documents read are a superset of the rows selected, and Athena evaluates
+ * the expressions again. Expressions which can't be translated are left to Athena.
+ * <p>
+ * LIKE predicates on a column are translated into anchored {@code $regex} queries instead, so that a pattern with a
+ * literal prefix is served from a range scan of an index on the column.
+ */
+public final class ExpressionUtils {
+
+    private static final String EXPR_OP = "$expr";
+    private static final String AND_OP = "$and";
+    private static final String CONVERT_OP = "$convert";
+    private static final String IF_NULL_OP = "$ifNull";
+    private static final String EQ_OP = "$eq";
+    private static final String SUBTRACT_OP = "$subtract";
+    private static final String DIVIDE_OP = "$divide";
+    private static final String MOD_OP = "$mod";
+    private static final String TRUNC_OP = "$trunc";
+    private static final String COND_OP = "$cond";
+    private static final String REGEX_OP = "$regex";
+    private static final String OR_OP = "$or";
+    private static final String NE_OP = "$ne";
+    private static final String NOT_OP = "$not";
+    private static final String TYPE_OP = "$type";
+    // Matches any character including line terminators, which the dot of a regex without flags doesn't match.
+    private static final String ANY_CHARACTER = "[\\s\\S]";
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+    // The standard functions and the aggregation operators which they are translated into.
+    private static final Map<String, String> OPERATORS = Map.ofEntries(
+            Map.entry(name(StandardFunctions.ADD_FUNCTION_NAME), "$add"),
+            Map.entry(name(StandardFunctions.SUBTRACT_FUNCTION_NAME), SUBTRACT_OP),
+            Map.entry(name(StandardFunctions.MULTIPLY_FUNCTION_NAME), "$multiply"),
+            Map.entry(name(StandardFunctions.DIVIDE_FUNCTION_NAME), DIVIDE_OP),
+            Map.entry(name(StandardFunctions.MODULUS_FUNCTION_NAME), MOD_OP),
+            Map.entry(name(StandardFunctions.AND_FUNCTION_NAME), AND_OP),
+            Map.entry(name(StandardFunctions.OR_FUNCTION_NAME), OR_OP),
+            Map.entry(name(StandardFunctions.NOT_FUNCTION_NAME), NOT_OP),
+            Map.entry(name(StandardFunctions.EQUAL_OPERATOR_FUNCTION_NAME), EQ_OP),
+            Map.entry(name(StandardFunctions.NOT_EQUAL_OPERATOR_FUNCTION_NAME), NE_OP),
+            Map.entry(name(StandardFunctions.LESS_THAN_OPERATOR_FUNCTION_NAME), "$lt"),
+            Map.entry(name(StandardFunctions.LESS_THAN_OR_EQUAL_OPERATOR_FUNCTION_NAME), "$lte"),
+            Map.entry(name(StandardFunctions.GREATER_THAN_OPERATOR_FUNCTION_NAME), "$gt"),
+            Map.entry(name(StandardFunctions.GREATER_THAN_OR_EQUAL_OPERATOR_FUNCTION_NAME), "$gte"));
+    private static final String NEGATE = name(StandardFunctions.NEGATE_FUNCTION_NAME);
+    private static final String IS_NULL = name(StandardFunctions.IS_NULL_FUNCTION_NAME);
+    private static final String LIKE = name(StandardFunctions.LIKE_PATTERN_FUNCTION_NAME);
+
+    private ExpressionUtils() {
+    }
+
+    /**
+     * @return The names of the standard functions which can be translated, to be advertised to Athena.
+     */
+    public static String[] getSupportedFunctions() {
+        List<String> functions = new ArrayList<>(OPERATORS.keySet());
+        functions.add(NEGATE);
+        functions.add(IS_NULL);
+        functions.add(LIKE);
+        return functions.stream().sorted().toArray(String[]::new);
+    }
+
+    /**
+     * Creates a query which evaluates every translatable expression on the server.
+     *
+     * @param schema      The schema of the fields read from the documents.
+     * @param expressions The expressions that Athena pushed down, all of which have to be true.
+     * @return A Document holding the LIKE predicates and the {@code $expr} of the other translatable expressions, which
+     * is empty if none of the expressions can be translated.
+     */
+    public static Document makeExpressionQuery(Schema schema, List<FederationExpression> expressions) {
+        List<Document> predicates = new ArrayList<>();
+        List<Object> conjuncts = new ArrayList<>();
+        for (FederationExpression expression : expressions) {
+            Document predicate = makeLikePredicate(schema, expression);
+            if (predicate != null) {
+                predicates.add(predicate);
+                continue;
+            }
+
+            Object conjunct = makeExpression(schema, expression);
+            if (conjunct != null) {
+                conjuncts.add(conjunct);
+            }
+        }
+
+        if (!conjuncts.isEmpty()) {
+            predicates.add(new Document(EXPR_OP, conjuncts.size() == 1 ? conjuncts.get(0) : new Document(AND_OP, conjuncts)));
+        }
+        if (predicates.isEmpty()) {
+            return new Document();
+        }
+        return predicates.size() == 1 ? predicates.get(0) : new Document(AND_OP, predicates);
+    }
+
+    /**
+     * Translates a LIKE expression on a VARCHAR column with a constant pattern into a {@code $regex} query.
+     *
+     * @param schema     The schema of the fields read from the documents.
+     * @param expression The expression to translate.
+     * @return The query, or null if the expression isn't such a LIKE expression.
+     */
+    public static Document makeLikePredicate(Schema schema, FederationExpression expression) {
+        if (!(expression instanceof FunctionCallExpression)) {
+            return null;
+        }
+
+        FunctionCallExpression call = (FunctionCallExpression) expression;
+        List<FederationExpression> arguments = call.getArguments();
+        if (!LIKE.equals(call.getFunctionName().getFunctionName()) || arguments.size() < 2
+                || !(arguments.get(0) instanceof VariableExpression)) {
+            return null;
+        }
+
+        Field field = QueryUtils.findField(schema, ((VariableExpression) arguments.get(0)).getColumnName());
+        if (field == null || Types.getMinorTypeForArrowType(field.getType()) != Types.MinorType.VARCHAR) {
+            return null;
+        }
+
+        Object pattern = arguments.get(1) instanceof ConstantExpression ? makeConstant((ConstantExpression) arguments.get(1)) : null;
+        Object escape = null;
+        if (arguments.size() > 2) {
+            escape = arguments.get(2) instanceof ConstantExpression ? makeConstant((ConstantExpression) arguments.get(2)) : null;
+            if (!(escape instanceof String) || ((String) escape).length() != 1) {
+                return null;
+            }
+        }
+        if (!(pattern instanceof String)) {
+            return null;
+        }
+
+        String regex = makeRegex((String) pattern, escape == null ? null : ((String) escape).charAt(0));
+        if (regex == null) {
+            return null;
+        }
+        // A regex only matches strings, while values of any other type, like ObjectIds, are read as strings as well, so
+        // those are returned for Athena to match.
+        return new Document(OR_OP, List.of(
+                new Document(field.getName(), new Document(REGEX_OP, regex)),
+                new Document(field.getName(), new Document(NE_OP, null).append(NOT_OP, new Document(TYPE_OP, "string")))));
+    }
+
+    /**
+     * Translates a single expression into an aggregation expression.
+     *
+     * @param schema     The schema of the fields read from the documents.
+     * @param expression The expression to translate.
+     * @return The aggregation expression, or null if the expression or any of its arguments can't be translated.
+     */
+    public static Object makeExpression(Schema schema, FederationExpression expression) {
+        if (expression instanceof VariableExpression) {
+            return makeVariable(schema, ((VariableExpression) expression).getColumnName());
+        } else if (expression instanceof ConstantExpression) {
+            return makeConstant((ConstantExpression) expression);
+        } else if (!(expression instanceof FunctionCallExpression)) {
+            return null;
+        }
+
+        FunctionCallExpression call = (FunctionCallExpression) expression;
+        String functionName = call.getFunctionName().getFunctionName();
+        List<Object> arguments = new ArrayList<>();
+        for (FederationExpression argument : call.getArguments()) {
+            Object translated = makeExpression(schema, argument);
+            if (translated == null) {
+                return null;
+            }
+            arguments.add(translated);
+        }
+
+        if (NEGATE.equals(functionName)) {
+            return new Document(SUBTRACT_OP, Arrays.asList(0, arguments.get(0)));
+        } else if (IS_NULL.equals(functionName)) {
+            // Missing fields are null in SQL, but not equal to null in an aggregation expression.
+            return new Document(EQ_OP, Arrays.asList(new Document(IF_NULL_OP, Arrays.asList(arguments.get(0), null)), null));
+        }
+
+        String operator = OPERATORS.get(functionName);
+        if (operator == null) {
+            return null;
+        }
+
+        if (DIVIDE_OP.equals(operator) || MOD_OP.equals(operator)) {
+            // Floating point division by zero is infinite in SQL, so only integer division is translated. Integer
+            // division truncates in SQL.
+            if (!(call.getType() instanceof ArrowType.Int)) {
+                return null;
+            }
+            // A division by zero fails the whole query on the server rather than the single document, so a zero
+            // divisor makes the result null instead.
+            Object divisor = arguments.get(1);
+            arguments.set(1, new Document(COND_OP, Arrays.asList(new Document(EQ_OP, Arrays.asList(divisor, 0)), null, divisor)));
+            Document translated = new Document(operator, arguments);
+            return DIVIDE_OP.equals(operator) ? new Document(TRUNC_OP, translated) : translated;
+        }
+        return new Document(operator, arguments);
+    }
+
+    /**
+     * Translates a LIKE pattern into a regex which is anchored at the start, so that its literal prefix can be looked
+     * up in an index. A trailing {@code %} is dropped, otherwise the regex is anchored at the end as well.
+     *
+     * @return The regex, or null if the pattern ends with the escape character.
+     */
+    static String makeRegex(String pattern, Character escape) {
+        StringBuilder regex = new StringBuilder("^");
+        boolean escaped = false;
+        for (char character : pattern.toCharArray()) {
+            if (escaped) {
+                appendLiteral(regex, character);
+                escaped = false;
+            } else if (escape != null && character == escape) {
+                escaped = true;
+            } else if (character == '%') {
+                regex.append(ANY_CHARACTER).append('*');
+            } else if (character == '_') {
+                regex.append(ANY_CHARACTER);
+            } else {
+                appendLiteral(regex, character);
+            }
+        }
+        if (escaped) {
+            return null;
+        }
+
+        String anyCharacters = ANY_CHARACTER + "*";
+        boolean trailingWildcard = false;
+        while (regex.length() > anyCharacters.length() && regex.lastIndexOf(anyCharacters) == regex.length() - anyCharacters.length()) {
+            regex.setLength(regex.length() - anyCharacters.length());
+            trailingWildcard = true;
+        }
+        if (!trailingWildcard) {
+            regex.append('$');
+        }
+        return regex.toString();
+    }
+
+    private static void appendLiteral(StringBuilder regex, char character) {
+        if (REGEX_METACHARACTERS.indexOf(character) >= 0) {
+            regex.append('\\');
+        }
+        regex.append(character);
+    }
+
+    private static Object makeVariable(Schema schema, String columnName) {
+        Field field = QueryUtils.findField(schema, columnName);
+        if (field == null) {
+            return null;
+        }
+
+        String type;
+        switch (Types.getMinorTypeForArrowType(field.getType())) {
+            case TINYINT:
+            case SMALLINT:
+            case INT:
+                type = "int";
+                break;
+            case BIGINT:
+                type = "long";
+                break;
+            case FLOAT4:
+            case FLOAT8:
+                type = "double";
+                break;
+            case DECIMAL:
+                type = "decimal";
+                break;
+            case VARCHAR:
+                type = "string";
+                break;
+            case BIT:
+                type = "bool";
+                break;
+            case DATEMILLI:
+                // Dates of DATEDAY columns are truncated to the day when they are read, which isn't done here.
+                type = "date";
+                break;
+            default:
+                return null;
+        }
+
+        return new Document(CONVERT_OP, new Document("input", "$" + field.getName())
+                .append("to", type)
+                .append("onError", null)
+                .append("onNull", null));
+    }
+
+    @SuppressWarnings("JavaUtilDate")
+    private static Object makeConstant(ConstantExpression constant) {
+        Block block = constant.getValues();
+        if (block.getRowCount() != 1) {
+            return null;
+        }
+
+        FieldReader reader = block.getFieldReaders().get(0);
+        reader.setPosition(0);
+        if (!reader.isSet()) {
+            return null;
+        }
+
+        Object value = reader.readObject();
+        if (value instanceof Text) {
+            return value.toString();
+        } else if (value instanceof LocalDateTime) {
+            return Date.from(((LocalDateTime) value).toInstant(ZoneOffset.UTC));
+        } else if (value instanceof Integer && constant.getType() instanceof ArrowType.Date) {
+            return new Date(TimeUnit.DAYS.toMillis((Integer) value));
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof String) {
+            return value;
+        }
+        return null;
+    }
+
+    private static String name(StandardFunctions function) {
+        return function.getFunctionName().getFunctionName();
+    }
+}
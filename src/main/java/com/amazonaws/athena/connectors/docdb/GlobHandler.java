@@ -3,14 +3,18 @@ package com.amazonaws.athena.connectors.docdb;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +61,46 @@ public class GlobHandler implements Function<String, String>, BiPredicate<String
                 .orElse(Collections.emptySet());
     }
 
+    /**
+     * Resolves the collections that back the given table. A multi-tenant table is backed by every collection matching
+     * its glob pattern while any other table is backed by the collection of the same name, ignoring case.
+     *
+     * @param tableName       The name of the table as seen by Athena.
+     * @param collectionNames The names of all the collections in the database.
+     * @return The sorted names of the collections that back the table.
+     */
+    public List<String> resolveCollections(String tableName, Iterable<String> collectionNames) {
+        boolean multiTenant = isMultiTenant(tableName);
+        return StreamSupport.stream(collectionNames.spliterator(), false)
+                .filter(collectionName -> {
+                    if (multiTenant ? test(tableName, collectionName) : collectionName.equalsIgnoreCase(tableName)) {
+                        logger.info("Collection {} matches requested table {}", collectionName, tableName);
+                        return true;
+                    } else {
+                        logger.debug("Collection {} doesn't match requested table {}", collectionName, tableName);
+                        return false;
+                    }
+                })
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Extracts the values that the named groups of the table's glob pattern capture from the given collection name,
+     * e.g. the pattern {@code Product_{{tenant}}} captures {@code tenant=42} from the collection {@code Product_42}.
+     *
+     * @param tableName      The name of the table as seen by Athena.
+     * @param collectionName The name of a collection backing the table.
+     * @return The captured value of every named group, or an empty map if the collection doesn't match the table.
+     */
+    public Map<String, String> getGroups(String tableName, String collectionName) {
+        return this.collectionConfigs.stream()
+                .filter(collectionConfig -> collectionConfig.collectionName.equalsIgnoreCase(tableName))
+                .findFirst()
+                .map(collectionConfig -> collectionConfig.getGroups(collectionName))
+                .orElse(Collections.emptyMap());
+    }
+
     public boolean isMultiTenant(String tableName) {
         if (this.collectionConfigs.stream().anyMatch(collectionConfig -> collectionConfig.test(tableName))) {
             logger.info("Table {} is a multi-tenant collection", tableName);
@@ -84,6 +128,19 @@ public class GlobHandler implements Function<String, String>, BiPredicate<String
             logger.debug("Matching {} to regex {}", collectionName, globPattern);
         }
 
+        private Map<String, String> getGroups(String s) {
+            Matcher matcher = this.globPattern.matcher(s);
+            if (!matcher.matches()) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, String> groups = new HashMap<>();
+            for (String inferredField : this.inferredFields) {
+                groups.put(inferredField, matcher.group(inferredField));
+            }
+            return groups;
+        }
+
         @Override
         public boolean test(String s) {
             if (this.globPattern.matcher(s).matches()) {
@@ -0,0 +1,106 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.Function;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+
+/**
+ * Iterates over the results of the same sorted find operation on a list of collections, merging the documents of the
+ * collections so that they are returned in the same order as the documents of every single collection.
+ * <p>
+ * The cursors of all collections are opened up front, and the next document is always taken from the collection
+ * whose next document comes first according to the given comparator, which has to agree with the sort of the find.
+ *
+ * @param <T> The type that the documents are decoded into.
+ */
+public class MergingMongoCursor<T> implements CollectionCursor<T>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MergingMongoCursor.class);
+    private final List<MongoCursor<T>> cursors = new ArrayList<>();
+    private final PriorityQueue<Head<T>> heads;
+    private volatile boolean closed;
+    private String currentCollection;
+
+    public MergingMongoCursor(String databaseName, List<String> collectionList, MongoClient client, Comparator<T> comparator, Function<MongoCollection<Document>, ? extends MongoIterable<T>> collectionFunction) {
+        MongoDatabase mongoDatabase = client.getDatabase(databaseName);
+        this.heads = new PriorityQueue<>(Math.max(collectionList.size(), 1), (left, right) -> comparator.compare(left.value, right.value));
+        try {
+            for (String collectionName : collectionList) {
+                logger.info("Iterating over collection {}", collectionName);
+                MongoCursor<T> cursor = collectionFunction.apply(mongoDatabase.getCollection(collectionName)).iterator();
+                cursors.add(cursor);
+                if (cursor.hasNext()) {
+                    heads.add(new Head<>(collectionName, cursor, cursor.next()));
+                }
+            }
+        } catch (RuntimeException ex) {
+            close();
+            throw ex;
+        }
+        logger.info("Initialized merging cursor over {} collections of {}", collectionList.size(), databaseName);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Head<T> head = heads.poll();
+        T value = head.value;
+        currentCollection = head.collectionName;
+        if (head.cursor.hasNext()) {
+            heads.add(new Head<>(head.collectionName, head.cursor, head.cursor.next()));
+        }
+        return value;
+    }
+
+    @Override
+    public String getCurrentCollection() {
+        return currentCollection;
+    }
+
+    /**
+     * Closes the cursors of every collection.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        cursors.forEach(MongoCursor::close);
+    }
+
+    /**
+     * The next document of a single collection.
+     */
+    private static class Head<T> {
+
+        private final String collectionName;
+        private final MongoCursor<T> cursor;
+        private final T value;
+
+        private Head(String collectionName, MongoCursor<T> cursor, T value) {
+            this.collectionName = collectionName;
+            this.cursor = cursor;
+            this.value = value;
+        }
+    }
+}
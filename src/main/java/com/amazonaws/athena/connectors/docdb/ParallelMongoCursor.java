@@ -0,0 +1,190 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.Function;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+
+/**
+ * Iterates over the results of the same find operation on a list of collections, reading several collections at the
+ * same time.
+ * <p>
+ * Every collection is read by a background thread, with at most the configured number of cursors open at once. The
+ * threads feed the batches of their collections into a single bounded queue, so the documents of the collections are
+ * interleaved batch by batch. Closing the cursor stops the threads, each of which closes its own cursor.
+ *
+ * @param <T> The type that the documents are decoded into.
+ */
+public class ParallelMongoCursor<T> implements CollectionCursor<T>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelMongoCursor.class);
+    // How often a background thread checks whether the cursor was closed while it waits for room in the queue.
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private final MongoDatabase mongoDatabase;
+    private final Function<MongoCollection<Document>, ? extends MongoIterable<T>> collectionFunction;
+    private final BlockingQueue<Batch<T>> batches;
+    private final ExecutorService executor;
+    private final int collectionCount;
+    private volatile boolean closed;
+    private int completedCollections;
+    private Iterator<T> currentBatch = Collections.emptyIterator();
+    private String currentCollection;
+
+    /**
+     * @param openCursors   The maximum number of collections that are read at the same time.
+     * @param queuedBatches The maximum number of batches that are read ahead of the consumer.
+     */
+    public ParallelMongoCursor(String databaseName, List<String> collectionList, MongoClient client, int openCursors, int queuedBatches, Function<MongoCollection<Document>, ? extends MongoIterable<T>> collectionFunction) {
+        this.mongoDatabase = client.getDatabase(databaseName);
+        this.collectionFunction = collectionFunction;
+        this.batches = new ArrayBlockingQueue<>(Math.max(queuedBatches, 1));
+        this.collectionCount = collectionList.size();
+        this.executor = Executors.newFixedThreadPool(Math.max(Math.min(openCursors, collectionCount), 1), runnable -> {
+            Thread thread = new Thread(runnable, "parallel-" + databaseName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        collectionList.forEach(collectionName -> executor.execute(() -> read(collectionName)));
+        executor.shutdown();
+        logger.info("Initialized parallel cursor over {} collections of {}", collectionCount, databaseName);
+    }
+
+    private void read(String collectionName) {
+        RuntimeException failure = null;
+        try {
+            if (closed) {
+                return;
+            }
+
+            logger.info("Iterating over collection {}", collectionName);
+            MongoCursor<T> cursor = collectionFunction.apply(mongoDatabase.getCollection(collectionName)).iterator();
+            try {
+                while (!closed && cursor.hasNext()) {
+                    List<T> batch = new ArrayList<>();
+                    do {
+                        batch.add(cursor.next());
+                    } while (cursor.available() > 0);
+                    offer(new Batch<>(collectionName, batch, null));
+                }
+            } finally {
+                PrefetchingMongoCursor.closeCursor(cursor);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Throwable ex) {
+            // Errors are passed on as well, as the consumer would otherwise wait for the end of the collection forever.
+            if (closed) {
+                return;
+            }
+            logger.warn("Error while reading collection {}", collectionName, ex);
+            failure = ex instanceof RuntimeException ? (RuntimeException) ex : new RuntimeException("Error while reading collection " + collectionName, ex);
+        }
+
+        try {
+            // An empty batch marks the end of a collection.
+            offer(new Batch<>(collectionName, Collections.emptyList(), failure));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for room in the queue until the cursor is closed, so that the threads don't have to be interrupted to stop
+     * them.
+     */
+    private void offer(Batch<T> batch) throws InterruptedException {
+        while (!closed && !batches.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            logger.trace("Waiting for room in the queue");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentBatch.hasNext()) {
+            if (closed || completedCollections == collectionCount) {
+                return false;
+            }
+
+            Batch<T> batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the next batch", ex);
+            }
+
+            if (closed) {
+                return false;
+            } else if (batch.rows.isEmpty()) {
+                completedCollections++;
+                if (batch.failure != null) {
+                    close();
+                    throw batch.failure;
+                }
+            } else {
+                currentBatch = batch.rows.iterator();
+                currentCollection = batch.collectionName;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentBatch.next();
+    }
+
+    @Override
+    public String getCurrentCollection() {
+        return currentCollection;
+    }
+
+    /**
+     * Stops the background threads, each of which closes its cursor once it is done with the batch it is reading. A
+     * consumer waiting for the next batch on another thread is woken up and sees the end of the cursor.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        batches.clear();
+        batches.offer(new Batch<>(null, Collections.emptyList(), null));
+    }
+
+    /**
+     * A batch of documents read from a single collection.
+     */
+    private static class Batch<T> {
+
+        private final String collectionName;
+        private final List<T> rows;
+        private final RuntimeException failure;
+
+        private Batch(String collectionName, List<T> rows, RuntimeException failure) {
+            this.collectionName = collectionName;
+            this.rows = rows;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.athena.connectors.util.CloseableIterator;
+import com.mongodb.client.MongoCursor;
+
+/**
+ * Wraps a MongoCursor so that its batches are fetched by a background thread while the batches fetched before are
+ * being consumed, overlapping the round trip of every getMore with the conversion of the previous batch.
+ * <p>
+ * The background thread drains the cursor one server batch at a time into a bounded queue. Once the queue holds the
+ * configured number of batches, the thread blocks until a batch is taken, so at most that many batches are held in
+ * memory on top of the batch that is being consumed. Errors of the cursor are rethrown to the consumer once the
+ * batches fetched before have been consumed.
+ *
+ * @param <T> The type that the documents are decoded into.
+ */
+public class PrefetchingMongoCursor<T> implements CloseableIterator<T>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchingMongoCursor.class);
+    // How often the background thread checks whether the cursor was closed while it waits for room in the queue.
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private final BlockingQueue<List<T>> batches;
+    private final Thread fetcher;
+    private volatile RuntimeException failure;
+    private volatile boolean closed;
+    private Iterator<T> currentBatch = Collections.emptyIterator();
+    private boolean exhausted;
+
+    /**
+     * @param cursor          The cursor to fetch the documents from, which is closed by the background thread.
+     * @param prefetchBatches The maximum number of batches fetched ahead of the consumer.
+     * @param name            The name of the background thread, for logging.
+     */
+    public PrefetchingMongoCursor(MongoCursor<T> cursor, int prefetchBatches, String name) {
+        this.batches = new ArrayBlockingQueue<>(prefetchBatches);
+        this.fetcher = new Thread(() -> fetch(cursor), "prefetch-" + name);
+        this.fetcher.setDaemon(true);
+        this.fetcher.start();
+    }
+
+    private void fetch(MongoCursor<T> cursor) {
+        try {
+            while (!closed && cursor.hasNext()) {
+                List<T> batch = new ArrayList<>();
+                do {
+                    batch.add(cursor.next());
+                } while (cursor.available() > 0);
+                offer(batch);
+            }
+            // An empty batch marks the end of the cursor.
+            offer(Collections.emptyList());
+        } catch (RuntimeException ex) {
+            if (!closed) {
+                logger.warn("Error while prefetching from cursor", ex);
+                failure = ex;
+                offer(Collections.emptyList());
+            }
+        } finally {
+            closeCursor(cursor);
+        }
+    }
+
+    /**
+     * Waits for room in the queue until the cursor is closed, so that the thread doesn't have to be interrupted to stop
+     * it.
+     */
+    private void offer(List<T> batch) {
+        try {
+            while (!closed && !batches.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.trace("Waiting for room in the queue");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Closes the cursor with the interrupt status of the thread cleared, as the driver can't check out the connection
+     * to kill the cursor on the server from an interrupted thread, which would leave it open until it times out.
+     */
+    static void closeCursor(MongoCursor<?> cursor) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            cursor.close();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentBatch.hasNext()) {
+            if (exhausted || closed) {
+                return false;
+            }
+
+            List<T> batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the next batch", ex);
+            }
+
+            if (closed) {
+                return false;
+            } else if (batch.isEmpty()) {
+                exhausted = true;
+                if (failure != null) {
+                    throw failure;
+                }
+                return false;
+            }
+            currentBatch = batch.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentBatch.next();
+    }
+
+    /**
+     * Stops the background thread, which closes the cursor once it is done with the batch it is fetching. A consumer
+     * waiting for the next batch on another thread is woken up and sees the end of the cursor.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        batches.clear();
+        batches.offer(Collections.emptyList());
+    }
+}
@@ -39,20 +39,28 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static java.util.stream.Collectors.toList;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.types.Types;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.arrow.vector.types.pojo.Schema;
 import org.apache.arrow.vector.util.Text;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 
 import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.domain.predicate.EquatableValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.google.common.collect.Lists;
 
 /**
  * Collection of helper methods which build Documents for use in DocumentDB queries, including:
@@ -62,29 +70,48 @@ import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
  */
 public final class QueryUtils {
     private static final String OR_OP = "$or";
-    @SuppressWarnings("unused")
     private static final String AND_OP = "$and";
-    @SuppressWarnings("unused")
     private static final String NOT_OP = "$not";
     @SuppressWarnings("unused")
     private static final String NOR_OP = "$nor";
     private static final String EQ_OP = "$eq";
     private static final String NOT_EQ_OP = "$ne";
-    private static final String EXISTS_OP = "$exists";
     private static final String GTE_OP = "$gte";
     private static final String GT_OP = "$gt";
     private static final String LT_OP = "$lt";
     private static final String LTE_OP = "$lte";
     private static final String IN_OP = "$in";
-    @SuppressWarnings("unused")
     private static final String NOTIN_OP = "$nin";
+    // The maximum number of values of a single $in or $nin. Longer lists are split into several of them, which keeps
+    // each list small enough to be planned and matched efficiently.
+    static final int MAX_IN_VALUES = 10_000;
+    private static final String TYPE_OP = "$type";
+    private static final String NUMBER_TYPE = "number";
+    // The types of the columns whose values keep the order of the BSON values they are read from, given that those are
+    // of the mapped BSON type.
+    private static final Map<Types.MinorType, String> ORDERED_TYPES = Map.ofEntries(
+            Map.entry(Types.MinorType.TINYINT, NUMBER_TYPE),
+            Map.entry(Types.MinorType.SMALLINT, NUMBER_TYPE),
+            Map.entry(Types.MinorType.INT, NUMBER_TYPE),
+            Map.entry(Types.MinorType.BIGINT, NUMBER_TYPE),
+            Map.entry(Types.MinorType.FLOAT4, NUMBER_TYPE),
+            Map.entry(Types.MinorType.FLOAT8, NUMBER_TYPE),
+            Map.entry(Types.MinorType.DECIMAL, NUMBER_TYPE),
+            Map.entry(Types.MinorType.DATEMILLI, "date"),
+            Map.entry(Types.MinorType.DATEDAY, "date"),
+            Map.entry(Types.MinorType.BIT, "bool"),
+            Map.entry(Types.MinorType.VARCHAR, "string"));
+    // ObjectIds are read as strings of this many lower case hex digits.
+    private static final String HEX_DIGITS = "0123456789abcdef";
+    private static final int OBJECT_ID_LENGTH = 24;
 
     private QueryUtils() {
     }
 
     /**
      * Given a Schema create a projection document which can be used to request only specific Document fields
-     * from DocumentDB.
+     * from DocumentDB. Struct fields are projected as the dot paths of their leaf children, so that only the requested
+     * subfields of a subdocument are returned instead of the whole subdocument.
      *
      * @param schema The schema containing the requested projection.
      * @return A Document matching the requested field projections.
@@ -92,11 +119,130 @@ public final class QueryUtils {
     public static Document makeProjection(Schema schema) {
         Document output = new Document();
         for (Field field : schema.getFields()) {
-            output.append(field.getName(), 1);
+            appendProjection(output, field.getName(), field);
+        }
+        return output;
+    }
+
+    private static void appendProjection(Document projection, String path, Field field) {
+        // Children whose names can't be part of a dot path are only returned with their whole parent.
+        boolean projectChildren = Types.getMinorTypeForArrowType(field.getType()) == Types.MinorType.STRUCT
+                && !field.getChildren().isEmpty()
+                && field.getChildren().stream().noneMatch(child -> child.getName().isEmpty() || child.getName().contains(".") || child.getName().startsWith("$"));
+        if (!projectChildren) {
+            projection.append(path, 1);
+            return;
+        }
+
+        for (Field child : field.getChildren()) {
+            appendProjection(projection, path + "." + child.getName(), child);
+        }
+    }
+
+    /**
+     * Given the ORDER BY clause of a query, create a sort document which can be used to have DocumentDB return the
+     * documents in the requested order. MongoDB orders missing and null values before all other values, so only
+     * ascending orders with nulls first and descending orders with nulls last can be pushed down.
+     * <p>
+     * MongoDB sorts the values as they are stored, while Athena orders them as they are read into their column, so
+     * the sort only returns the top rows if the sorted fields hold values of the type of their column, see
+     * {@link #makeUnorderedValuesQuery(Schema, List)}.
+     *
+     * @param schema  The schema containing the requested projection.
+     * @param orderBy The fields to order by.
+     * @return A Document describing the order, or null if the order can't be pushed down.
+     */
+    public static Document makeSort(Schema schema, List<OrderByField> orderBy) {
+        Document output = new Document();
+        for (OrderByField orderByField : orderBy) {
+            Field field = schema.getFields().stream()
+                    .filter(next -> next.getName().equals(orderByField.getColumnName()))
+                    .findFirst()
+                    .orElse(null);
+            if (field == null || !ORDERED_TYPES.containsKey(Types.getMinorTypeForArrowType(field.getType()))) {
+                return null;
+            }
+
+            OrderByField.Direction direction = orderByField.getDirection();
+            if (direction.isAscending() != direction.isNullsFirst()) {
+                return null;
+            }
+            output.append(field.getName(), direction.isAscending() ? 1 : -1);
         }
         return output;
     }
 
+    /**
+     * Creates a query for the documents whose sorted fields hold values of another BSON type than the one their
+     * columns are read from, like numbers or ObjectIds in a VARCHAR column, or arrays and NaN. MongoDB orders such values
+     * apart from the others, while Athena orders them as they are read into the column, so a collection holding any
+     * of them can't be sorted by MongoDB.
+     *
+     * @param schema  The schema containing the requested projection.
+     * @param orderBy The fields to order by, which {@link #makeSort(Schema, List)} can sort by.
+     * @return A Document matching the documents whose order differs between MongoDB and Athena.
+     */
+    public static Document makeUnorderedValuesQuery(Schema schema, List<OrderByField> orderBy) {
+        List<Document> disjuncts = new ArrayList<>();
+        for (OrderByField orderByField : orderBy) {
+            Field field = findChild(schema.getFields(), orderByField.getColumnName());
+            String type = field == null ? null : ORDERED_TYPES.get(Types.getMinorTypeForArrowType(field.getType()));
+            checkState(type != null, "Can't sort by %s", orderByField.getColumnName());
+            disjuncts.add(documentOf(field.getName(), documentOf(TYPE_OP, "array")));
+            disjuncts.add(documentOf(field.getName(), documentOf(NOT_EQ_OP, null).append(NOT_OP, documentOf(TYPE_OP, type))));
+            if (NUMBER_TYPE.equals(type)) {
+                // MongoDB orders NaN before every other number while Athena orders it after them.
+                disjuncts.add(documentOf(field.getName(), Double.NaN));
+            }
+        }
+        return orPredicate(disjuncts);
+    }
+
+    /**
+     * Checks whether every constraint can be converted into a predicate, in which case the query returns exactly the
+     * documents which satisfy the constraints.
+     *
+     * @param schema            The schema containing the requested projection.
+     * @param constraintSummary The set of constraints to apply to the query.
+     * @return True if every constraint is part of the query, false otherwise.
+     */
+    public static boolean isExactQuery(Schema schema, Map<String, ValueSet> constraintSummary) {
+        return constraintSummary.entrySet().stream()
+                .allMatch(entry -> {
+                    Field field = findField(schema, entry.getKey());
+                    return field != null && makePredicate(field, entry.getValue()) != null;
+                });
+    }
+
+    /**
+     * Checks whether every document which satisfies the query still satisfies the constraints once its values were
+     * coerced into their columns. Strings are read as they are, and a value equal to a constant of the column's type
+     * stays equal to it, but a range or a negation also matches values which coercion changes, e.g. 5.5 satisfies
+     * {@code x > 5} but is read as 5 into a BIGINT column.
+     *
+     * @param schema            The schema containing the requested projection.
+     * @param constraintSummary The set of constraints to apply to the query.
+     * @return True if no document returned by the query is rejected once it is read, false otherwise.
+     */
+    public static boolean isCoercionSafeQuery(Schema schema, Map<String, ValueSet> constraintSummary) {
+        return constraintSummary.entrySet().stream()
+                .allMatch(entry -> {
+                    Field field = findField(schema, entry.getKey());
+                    return field != null && (isVarchar(field) || isEqualityConstraint(entry.getValue()));
+                });
+    }
+
+    private static boolean isEqualityConstraint(ValueSet constraint) {
+        if (constraint.isNone()) {
+            return true;
+        } else if (constraint.isAll()) {
+            return constraint.isNullAllowed();
+        } else if (constraint instanceof EquatableValueSet) {
+            return ((EquatableValueSet) constraint).isWhiteList();
+        }
+        return constraint.getRanges().getOrderedRanges().stream().allMatch(Range::isSingleValue);
+    }
+
     /**
      * Given a set of Constraints and the projection Schema, create the Query Document that can be used to
      * push predicates into DocumentDB.
@@ -106,57 +252,121 @@ public final class QueryUtils {
      * @return The Document to use as the query.
      */
     public static Document makeQuery(Schema schema, Map<String, ValueSet> constraintSummary) {
-        Document query = new Document();
+        List<Document> predicates = new ArrayList<>();
         for (Map.Entry<String, ValueSet> entry : constraintSummary.entrySet()) {
-            Document doc = makePredicate(schema.findField(entry.getKey()), entry.getValue());
+            Field field = findField(schema, entry.getKey());
+            if (field == null) {
+                // Constraints on fields which aren't read are left to Athena.
+                continue;
+            }
+
+            Document doc = makePredicate(field, entry.getValue());
             if (doc != null) {
-                query.putAll(doc);
+                predicates.add(doc);
             }
         }
 
+        // The predicates are merged into a single document unless their keys collide, e.g. when the predicates of two
+        // fields are both an $or, which would otherwise drop all but one of them.
+        Document query = new Document();
+        for (Document predicate : predicates) {
+            if (predicate.keySet().stream().anyMatch(query::containsKey)) {
+                return new Document(AND_OP, predicates);
+            }
+            query.putAll(predicate);
+        }
         return query;
     }
 
+    /**
+     * Resolves the field that a constraint or an expression refers to. Children of struct fields are referred to by
+     * their dot path, like {@code address.city}, which is also the key that DocumentDB matches them by, so that
+     * indexes on fields of subdocuments can be used.
+     *
+     * @param schema The schema containing the requested projection.
+     * @param name   The name of a top level field, or the dot path of the child of a struct field.
+     * @return The field, named by the given name and typed like the top level field or child, or null if there is no
+     * such field.
+     */
+    public static Field findField(Schema schema, String name) {
+        Field field = findChild(schema.getFields(), name);
+        if (field != null) {
+            return field;
+        }
+
+        List<Field> children = schema.getFields();
+        for (String part : name.split("\\.", -1)) {
+            field = findChild(children, part);
+            if (field == null) {
+                return null;
+            }
+            // Only the children of structs are addressed by dot paths, the elements of lists aren't.
+            children = Types.getMinorTypeForArrowType(field.getType()) == Types.MinorType.STRUCT ? field.getChildren() : List.of();
+        }
+        return new Field(name, field.getFieldType(), field.getChildren());
+    }
+
+    private static Field findChild(List<Field> fields, String name) {
+        return fields.stream()
+                .filter(next -> next.getName().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+
     /**
      * Converts a single field constraint into a Document for use in a DocumentDB query.
      *
+     * <p>
+     * Athena reads missing fields as NULL, so a constraint which allows NULL matches documents where the field is
+     * missing as well as documents where it is null, which is what an equality with null matches in DocumentDB. The
+     * null is added to the values of the constraint where possible, so that the predicate can still be served from
+     * an index on the field.
+     *
      * @param field      The field for the given ValueSet constraint.
      * @param constraint The constraint to apply to the given field.
      * @return A Document describing the constraint for pushing down into DocumentDB.
      */
-    @SuppressWarnings({"MismatchedQueryAndUpdateOfCollection", "ModifiedButNotUsed"})
     public static Document makePredicate(Field field, ValueSet constraint) {
         String name = field.getName();
 
         if (constraint.isNone()) {
-            return documentOf(name, isNullPredicate());
+            return constraint.isNullAllowed() ? documentOf(name, isNullPredicate()) : documentOf(name, documentOf(IN_OP, List.of()));
         }
 
         if (constraint.isAll()) {
-            return documentOf(name, isNotNullPredicate());
-        }
-
-        if (constraint.isNullAllowed()) {
-            //TODO: support nulls mixed with discrete value constraints
-            return null;
+            return constraint.isNullAllowed() ? new Document() : documentOf(name, isNotNullPredicate());
         }
 
         if (constraint instanceof EquatableValueSet) {
-            Block block = ((EquatableValueSet) constraint).getValues();
+            EquatableValueSet equatableValueSet = (EquatableValueSet) constraint;
+            Block block = equatableValueSet.getValues();
             List<Object> singleValues = new ArrayList<>();
-
             FieldReader fieldReader = block.getFieldReaders().get(0);
             for (int i = 0; i < block.getRowCount(); i++) {
-                Document nextEqVal = new Document();
                 fieldReader.setPosition(i);
-                Object value = fieldReader.readObject();
-                nextEqVal.put(EQ_OP, convert(value));
-                singleValues.add(singleValues);
+                singleValues.add(convert(fieldReader.readObject()));
             }
 
-            return orPredicate(singleValues.stream()
-                    .map(next -> new Document(name, next))
-                    .collect(toList()));
+            if (isVarchar(field)) {
+                addObjectIds(singleValues);
+            }
+
+            if (equatableValueSet.isWhiteList()) {
+                if (constraint.isNullAllowed()) {
+                    singleValues.add(null);
+                }
+                return orPredicate(inPredicates(singleValues).stream()
+                        .map(disjunct -> documentOf(name, disjunct))
+                        .collect(toList()));
+            }
+            // $nin also matches missing and null fields, which NOT IN only does if the constraint allows NULL.
+            if (!constraint.isNullAllowed()) {
+                singleValues.add(null);
+            }
+            List<Document> conjuncts = Lists.partition(singleValues, MAX_IN_VALUES).stream()
+                    .map(values -> documentOf(name, documentOf(NOTIN_OP, values)))
+                    .collect(toList());
+            return conjuncts.size() == 1 ? conjuncts.get(0) : documentOf(AND_OP, conjuncts);
         }
 
         List<Object> singleValues = new ArrayList<>();
@@ -197,21 +407,130 @@ public final class QueryUtils {
                 // If rangeConjuncts is null, then the range was ALL, which should already have been checked for
                 verify(!rangeConjuncts.isEmpty());
                 disjuncts.add(rangeConjuncts);
+
+                if (isVarchar(field)) {
+                    Document objectIdConjuncts = toObjectIdRange(rangeConjuncts);
+                    if (objectIdConjuncts != null) {
+                        disjuncts.add(objectIdConjuncts);
+                    }
+                }
             }
         }
 
-        // Add back all the possible single values either as an equality or an IN predicate
-        if (singleValues.size() == 1) {
-            disjuncts.add(documentOf(EQ_OP, singleValues.get(0)));
-        } else if (singleValues.size() > 1) {
-            disjuncts.add(documentOf(IN_OP, singleValues));
+        if (isVarchar(field)) {
+            addObjectIds(singleValues);
+        }
+
+        if (constraint.isNullAllowed()) {
+            singleValues.add(null);
         }
 
+        // Add back all the possible single values either as an equality or IN predicates
+        disjuncts.addAll(inPredicates(singleValues));
+
         return orPredicate(disjuncts.stream()
                 .map(disjunct -> new Document(name, disjunct))
                 .collect(toList()));
     }
 
+    private static boolean isVarchar(Field field) {
+        return Types.getMinorTypeForArrowType(field.getType()) == Types.MinorType.VARCHAR;
+    }
+
+    /**
+     * ObjectIds are read as their lower case hex strings, so a string which is such a hex string also matches the
+     * ObjectId it represents. Adding the ObjectIds to the values of an $in lets an index on the field serve the lookup.
+     */
+    private static void addObjectIds(List<Object> values) {
+        int size = values.size();
+        for (int i = 0; i < size; i++) {
+            ObjectId objectId = toObjectId(values.get(i));
+            if (objectId != null) {
+                values.add(objectId);
+            }
+        }
+    }
+
+    /**
+     * Lower case hex strings of the same length sort in the order of the bytes they represent, so the hex strings
+     * within a range of strings are those of a range of ObjectIds. A bound which isn't itself such a hex string is
+     * replaced by the first ObjectId whose hex string sorts after it.
+     *
+     * @return The range with ObjectId bounds, or null if no ObjectId is read as a string within the range.
+     */
+    private static Document toObjectIdRange(Document range) {
+        Document objectIdRange = new Document();
+        for (Map.Entry<String, Object> bound : range.entrySet()) {
+            String op = bound.getKey();
+            ObjectId objectId = toObjectId(bound.getValue());
+            if (objectId == null) {
+                objectId = ceilingObjectId((String) bound.getValue());
+                boolean isLowerBound = GT_OP.equals(op) || GTE_OP.equals(op);
+                if (objectId == null) {
+                    if (isLowerBound) {
+                        return null;
+                    }
+                    continue;
+                }
+                op = isLowerBound ? GTE_OP : LT_OP;
+            }
+            objectIdRange.append(op, objectId);
+        }
+        return objectIdRange.isEmpty() ? documentOf(TYPE_OP, "objectId") : objectIdRange;
+    }
+
+    /**
+     * Finds the first ObjectId whose hex string sorts at or after the given string, or null if there is none.
+     */
+    private static ObjectId ceilingObjectId(String value) {
+        int matched = 0;
+        while (matched < value.length() && matched < OBJECT_ID_LENGTH && HEX_DIGITS.indexOf(value.charAt(matched)) >= 0) {
+            matched++;
+        }
+        if (matched == value.length()) {
+            return new ObjectId(padObjectId(value));
+        }
+
+        // Increment the last character that can be, starting with the first one that isn't a hex digit.
+        for (int i = Math.min(matched, OBJECT_ID_LENGTH - 1); i >= 0; i--) {
+            char current = value.charAt(i);
+            for (char digit : HEX_DIGITS.toCharArray()) {
+                if (digit > current) {
+                    return new ObjectId(padObjectId(value.substring(0, i) + digit));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String padObjectId(String prefix) {
+        StringBuilder hex = new StringBuilder(prefix);
+        while (hex.length() < OBJECT_ID_LENGTH) {
+            hex.append('0');
+        }
+        return hex.toString();
+    }
+
+    private static ObjectId toObjectId(Object value) {
+        if (value instanceof String && ObjectId.isValid((String) value) && value.equals(((String) value).toLowerCase(Locale.ROOT))) {
+            return new ObjectId((String) value);
+        }
+        return null;
+    }
+
+    /**
+     * Matches any of the given values, with an equality for a single value and otherwise with one $in per
+     * MAX_IN_VALUES values, which are meant to be joined by $or.
+     */
+    private static List<Document> inPredicates(List<Object> values) {
+        if (values.size() == 1) {
+            return List.of(documentOf(EQ_OP, values.get(0)));
+        }
+        return Lists.partition(values, MAX_IN_VALUES).stream()
+                .map(partition -> documentOf(IN_OP, partition))
+                .collect(toList());
+    }
+
     private static Document documentOf(String key, Object value) {
         return new Document(key, value);
     }
@@ -225,16 +544,20 @@ public final class QueryUtils {
     }
 
     private static Document isNullPredicate() {
-        return documentOf(EXISTS_OP, true).append(EQ_OP, null);
+        return documentOf(EQ_OP, null);
     }
 
     private static Document isNotNullPredicate() {
         return documentOf(NOT_EQ_OP, null);
     }
 
+    @SuppressWarnings("JavaUtilDate")
     private static Object convert(Object value) {
         if (value instanceof Text) {
             return value.toString();
+        } else if (value instanceof LocalDateTime) {
+            // DocumentDB stores dates as UTC instants, which Arrow reads as local date times.
+            return Date.from(((LocalDateTime) value).toInstant(ZoneOffset.UTC));
         }
         return value;
     }
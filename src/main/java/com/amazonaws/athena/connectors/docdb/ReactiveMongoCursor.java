@@ -0,0 +1,260 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.io.Closeable;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.Function;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+/**
+ * Iterates over the results of the same find operation on a list of collections using the reactive streams driver,
+ * reading several collections at the same time.
+ * <p>
+ * Unlike the cursors of the synchronous driver, the publishers of the collections don't need a thread of their own, as
+ * the driver pushes documents from its own event loop. The number of documents held in memory is bounded by demand
+ * instead: every collection requests a window of documents up front and only requests more as the consumer writes the
+ * documents it received, so collections are throttled to the pace at which blocks are written and spilled.
+ *
+ * @param <T> The type that the documents are decoded into.
+ */
+public class ReactiveMongoCursor<T> implements CollectionCursor<T>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMongoCursor.class);
+    private final MongoDatabase mongoDatabase;
+    private final Function<MongoCollection<Document>, Publisher<T>> collectionFunction;
+    private final BlockingQueue<Signal<T>> signals = new LinkedBlockingQueue<>();
+    private final Deque<String> pendingCollections;
+    private final List<CollectionSubscriber> activeSubscribers = new CopyOnWriteArrayList<>();
+    private final long window;
+    private volatile boolean closed;
+    private Signal<T> nextSignal;
+    private String currentCollection;
+
+    /**
+     * @param openCursors       The maximum number of collections that are read at the same time.
+     * @param bufferedDocuments The maximum number of documents that are requested ahead of the consumer, shared among
+     *                          the collections that are read at the same time.
+     */
+    public ReactiveMongoCursor(String databaseName, List<String> collectionList, MongoClient client, int openCursors, int bufferedDocuments, Function<MongoCollection<Document>, Publisher<T>> collectionFunction) {
+        this.mongoDatabase = client.getDatabase(databaseName);
+        this.collectionFunction = collectionFunction;
+        this.pendingCollections = new ConcurrentLinkedDeque<>(collectionList);
+        int subscribers = Math.max(openCursors, 1);
+        this.window = Math.max(bufferedDocuments / subscribers, 1);
+        for (int i = 0; i < subscribers && !pendingCollections.isEmpty(); i++) {
+            subscribeNext();
+        }
+        logger.info("Initialized reactive cursor over {} collections of {}", collectionList.size(), databaseName);
+    }
+
+    /**
+     * Converts every item of the given publisher, like {@link com.mongodb.client.MongoIterable#map} does for the
+     * cursors of the synchronous driver. A conversion which fails cancels the subscription and ends the publisher with
+     * the failure.
+     *
+     * @param publisher The publisher of the items to convert.
+     * @param mapper    The conversion of a single item.
+     * @return A publisher of the converted items.
+     */
+    public static <S, T> Publisher<T> map(Publisher<S> publisher, Function<S, T> mapper) {
+        return subscriber -> publisher.subscribe(new Subscriber<S>() {
+
+            private Subscription subscription;
+            private boolean failed;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(S item) {
+                if (failed) {
+                    return;
+                }
+                T mapped;
+                try {
+                    mapped = mapper.apply(item);
+                } catch (RuntimeException ex) {
+                    failed = true;
+                    subscription.cancel();
+                    subscriber.onError(ex);
+                    return;
+                }
+                subscriber.onNext(mapped);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (!failed) {
+                    subscriber.onError(error);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (!failed) {
+                    subscriber.onComplete();
+                }
+            }
+        });
+    }
+
+    private void subscribeNext() {
+        String collectionName = pendingCollections.poll();
+        logger.info("Iterating over collection {}", collectionName);
+        CollectionSubscriber subscriber = new CollectionSubscriber(collectionName);
+        activeSubscribers.add(subscriber);
+        collectionFunction.apply(mongoDatabase.getCollection(collectionName)).subscribe(subscriber);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextSignal == null) {
+            if (closed || activeSubscribers.isEmpty()) {
+                return false;
+            }
+
+            Signal<T> signal;
+            try {
+                signal = signals.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the next document", ex);
+            }
+
+            if (closed) {
+                return false;
+            } else if (signal.error != null) {
+                close();
+                throw new RuntimeException("Error while reading collection " + signal.subscriber.collectionName, signal.error);
+            } else if (signal.item == null) {
+                activeSubscribers.remove(signal.subscriber);
+                if (!pendingCollections.isEmpty()) {
+                    subscribeNext();
+                }
+            } else {
+                nextSignal = signal;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Signal<T> signal = nextSignal;
+        nextSignal = null;
+        currentCollection = signal.subscriber.collectionName;
+        signal.subscriber.consumed();
+        return signal.item;
+    }
+
+    @Override
+    public String getCurrentCollection() {
+        return currentCollection;
+    }
+
+    /**
+     * Cancels the subscriptions of every collection that is being read. A consumer waiting for the next document on
+     * another thread is woken up and sees the end of the cursor.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        activeSubscribers.forEach(CollectionSubscriber::cancel);
+        activeSubscribers.clear();
+        pendingCollections.clear();
+        signals.clear();
+        signals.add(new Signal<>(null, null, null));
+    }
+
+    /**
+     * Subscribes to the documents of a single collection, requesting more documents once half of its window was
+     * consumed.
+     */
+    private class CollectionSubscriber implements Subscriber<T> {
+
+        private final String collectionName;
+        private volatile Subscription subscription;
+        private long consumed;
+
+        private CollectionSubscriber(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            if (closed) {
+                subscription.cancel();
+            } else {
+                subscription.request(window);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            signals.add(new Signal<>(this, item, null));
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            signals.add(new Signal<>(this, null, error));
+        }
+
+        @Override
+        public void onComplete() {
+            // A signal without an item or error marks the end of a collection.
+            signals.add(new Signal<>(this, null, null));
+        }
+
+        private void consumed() {
+            if (++consumed >= Math.max(window / 2, 1)) {
+                subscription.request(consumed);
+                consumed = 0;
+            }
+        }
+
+        private void cancel() {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * A document, the end of a collection or an error of a collection.
+     */
+    private static class Signal<T> {
+
+        private final ReactiveMongoCursor<T>.CollectionSubscriber subscriber;
+        private final T item;
+        private final Throwable error;
+
+        private Signal(ReactiveMongoCursor<T>.CollectionSubscriber subscriber, T item, Throwable error) {
+            this.subscriber = subscriber;
+            this.item = item;
+            this.error = error;
+        }
+    }
+}
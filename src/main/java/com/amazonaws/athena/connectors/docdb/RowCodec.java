@@ -0,0 +1,116 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.arrow.vector.types.pojo.Field;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import com.mongodb.MongoClientSettings;
+
+/**
+ * Decodes documents straight into rows of the requested fields, without materializing an intermediate Document.
+ * <p>
+ * A row is an array holding the value of every requested field at the position of the field in the list of fields,
+ * already coerced to the type of the field. Top-level fields which weren't requested are skipped over without being
+ * decoded. The values of nested documents and arrays are decoded like the default DocumentCodec would, as the field
+ * resolver of complex fields expects Documents and Lists.
+ */
+public class RowCodec implements Codec<Object[]> {
+
+    private static final BsonTypeClassMap BSON_TYPE_CLASS_MAP = new BsonTypeClassMap();
+    private final List<Field> fields;
+    private final Map<String, Integer> fieldIndexes = new HashMap<>();
+    private final boolean caseInsensitive;
+    private final CodecRegistry codecRegistry;
+
+    /**
+     * @param fields          The requested fields in the order in which their values appear in a row.
+     * @param caseInsensitive Whether the names of the fields should be matched to the document keys ignoring case, in
+     *                        which case the last of several keys that only differ in case wins.
+     */
+    public RowCodec(List<Field> fields, boolean caseInsensitive) {
+        this.fields = fields;
+        this.caseInsensitive = caseInsensitive;
+        this.codecRegistry = MongoClientSettings.getDefaultCodecRegistry();
+        for (int i = 0; i < fields.size(); i++) {
+            fieldIndexes.put(normalize(fields.get(i).getName()), i);
+        }
+    }
+
+    @Override
+    public Object[] decode(BsonReader reader, DecoderContext decoderContext) {
+        Object[] row = new Object[fields.size()];
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Integer index = fieldIndexes.get(normalize(reader.readName()));
+            if (index == null) {
+                reader.skipValue();
+            } else {
+                row[index] = TypeUtils.coerce(fields.get(index), readValue(reader, decoderContext));
+            }
+        }
+        reader.readEndDocument();
+        return row;
+    }
+
+    /**
+     * Converts an already decoded document into a row, for when documents are decoded by the default codec.
+     *
+     * @param document The decoded document.
+     * @return The row holding the coerced value of every requested field.
+     */
+    public Object[] toRow(Map<String, Object> document) {
+        Object[] row = new Object[fields.size()];
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            Integer index = fieldIndexes.get(normalize(entry.getKey()));
+            if (index != null) {
+                row[index] = TypeUtils.coerce(fields.get(index), entry.getValue());
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Object[] value, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException("Rows can only be decoded");
+    }
+
+    @Override
+    public Class<Object[]> getEncoderClass() {
+        return Object[].class;
+    }
+
+    private String normalize(String name) {
+        return caseInsensitive ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    private Object readValue(BsonReader reader, DecoderContext decoderContext) {
+        BsonType bsonType = reader.getCurrentBsonType();
+        switch (bsonType) {
+            case NULL:
+                reader.readNull();
+                return null;
+            case ARRAY:
+                List<Object> list = new ArrayList<>();
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    list.add(readValue(reader, decoderContext));
+                }
+                reader.readEndArray();
+                return list;
+            default:
+                return decoderContext.decodeWithChildContext(codecRegistry.get(BSON_TYPE_CLASS_MAP.get(bsonType)), reader);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.bson.Document;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+
+/**
+ * Collection of helper methods which read the chunk distribution of sharded collections from the config database so
+ * that splits can be aligned with the shards that hold the data.
+ * <p>
+ * Only collections sharded on a single, ranged field are supported. Hashed and compound shard keys can't be expressed
+ * as a range of a single field, so such collections are treated as if they were unsharded.
+ */
+public final class ShardUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardUtils.class);
+    private static final String CONFIG_DB = "config";
+    private static final String COLLECTIONS_COLL = "collections";
+    private static final String CHUNKS_COLL = "chunks";
+    private static final String ID_FIELD = "_id";
+    private static final String KEY_FIELD = "key";
+    private static final String DROPPED_FIELD = "dropped";
+    private static final String UUID_FIELD = "uuid";
+    private static final String NS_FIELD = "ns";
+    private static final String MIN_FIELD = "min";
+    private static final String MAX_FIELD = "max";
+    private static final String SHARD_FIELD = "shard";
+
+    private ShardUtils() {
+    }
+
+    /**
+     * Reads the chunks of the given collection, sorted by their lower bound.
+     *
+     * @param client    The client connected to the mongos of the cluster.
+     * @param namespace The namespace of the collection.
+     * @return The sorted chunks of the collection, or an empty list if the collection isn't sharded, is sharded on an
+     * unsupported key or if the config database can't be read.
+     */
+    public static List<Chunk> getChunks(MongoClient client, MongoNamespace namespace) {
+        try {
+            MongoDatabase config = client.getDatabase(CONFIG_DB);
+            Document collection = config.getCollection(COLLECTIONS_COLL)
+                    .find(Filters.eq(ID_FIELD, namespace.getFullName()))
+                    .first();
+            if (collection == null || collection.getBoolean(DROPPED_FIELD, false)) {
+                return List.of();
+            }
+
+            Document key = collection.get(KEY_FIELD, Document.class);
+            if (key == null || key.size() != 1 || !(key.values().iterator().next() instanceof Number)) {
+                logger.info("Collection {} is sharded on unsupported key {}", namespace, key);
+                return List.of();
+            }
+
+            String field = key.keySet().iterator().next();
+            Object uuid = collection.get(UUID_FIELD);
+            List<Chunk> chunks = new ArrayList<>();
+            config.getCollection(CHUNKS_COLL)
+                    .find(uuid == null ? Filters.eq(NS_FIELD, namespace.getFullName())
+                            : Filters.or(Filters.eq(NS_FIELD, namespace.getFullName()), Filters.eq(UUID_FIELD, uuid)))
+                    .sort(Sorts.ascending(MIN_FIELD))
+                    .forEach(chunk -> chunks.add(new Chunk(field,
+                            chunk.get(MIN_FIELD, Document.class).get(field),
+                            chunk.get(MAX_FIELD, Document.class).get(field),
+                            chunk.getString(SHARD_FIELD))));
+            logger.info("Collection {} is sharded on {} across {} chunks", namespace, field, chunks.size());
+            return chunks;
+        } catch (MongoException ex) {
+            logger.warn("Unable to read the chunks of collection {}", namespace, ex);
+            return List.of();
+        }
+    }
+
+    /**
+     * Picks the shard key values at which a sharded collection should be divided so that every range is held by a
+     * single shard. Contiguous chunks on the same shard are merged into ranges of roughly the same number of chunks.
+     * <p>
+     * If the balancer interleaved the chunks of the shards, there may be more runs of contiguous chunks on the same
+     * shard than the collection may be divided into. Adjacent runs are then merged into ranges which span several
+     * shards and hold roughly the same number of chunks, so that the number of ranges never exceeds the maximum.
+     *
+     * @param chunks    The sorted chunks of the collection.
+     * @param maxRanges The maximum number of ranges that the collection is divided into.
+     * @return The sorted boundaries of the ranges, or null if the chunk bounds aren't all of the same BSON type, as
+     * range predicates only match values of the same type as the bounds.
+     */
+    public static List<Object> getBoundaries(List<Chunk> chunks, int maxRanges) {
+        int chunksPerRange = Math.max((chunks.size() + maxRanges - 1) / Math.max(maxRanges, 1), 1);
+        List<Integer> starts = new ArrayList<>();
+        int merged = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            if (i > 0 && (merged >= chunksPerRange || !Objects.equals(chunks.get(i - 1).getShard(), chunk.getShard()))) {
+                starts.add(i);
+                merged = 0;
+            }
+            merged++;
+        }
+
+        if (starts.size() >= maxRanges) {
+            // Picks the first start at or after every multiple of the number of chunks per range.
+            List<Integer> coarseStarts = new ArrayList<>();
+            int next = 0;
+            for (int range = 1; range < maxRanges; range++) {
+                long target = (long) chunks.size() * range / maxRanges;
+                while (next < starts.size() && starts.get(next) < target) {
+                    next++;
+                }
+                if (next == starts.size()) {
+                    break;
+                }
+                if (coarseStarts.isEmpty() || !coarseStarts.get(coarseStarts.size() - 1).equals(starts.get(next))) {
+                    coarseStarts.add(starts.get(next));
+                }
+            }
+            starts = coarseStarts;
+        }
+
+        List<Object> boundaries = new ArrayList<>();
+        for (int start : starts) {
+            boundaries.add(chunks.get(start).getMin());
+        }
+
+        for (Object boundary : boundaries) {
+            if (boundary == null || boundary instanceof MinKey || boundary instanceof MaxKey
+                    || boundary.getClass() != boundaries.get(0).getClass()) {
+                logger.info("Unable to align splits with chunks bounded by mixed types {}", boundaries);
+                return null;
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * A contiguous range of shard key values held by a single shard.
+     */
+    public static final class Chunk {
+
+        private final String field;
+        private final Object min;
+        private final Object max;
+        private final String shard;
+
+        public Chunk(String field, Object min, Object max, String shard) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+            this.shard = shard;
+        }
+
+        /**
+         * @return The name of the field the collection is sharded on.
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * @return The inclusive lower bound of the chunk, which is MinKey for the first chunk.
+         */
+        public Object getMin() {
+            return min;
+        }
+
+        /**
+         * @return The exclusive upper bound of the chunk, which is MaxKey for the last chunk.
+         */
+        public Object getMax() {
+            return max;
+        }
+
+        /**
+         * @return The name of the shard holding the chunk.
+         */
+        public String getShard() {
+            return shard;
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk{field=" + field + ", min=" + min + ", max=" + max + ", shard=" + shard + "}";
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import com.amazonaws.athena.connector.lambda.domain.Split;
+import com.mongodb.ReadPreference;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
+import com.mongodb.client.MongoCollection;
+
+/**
+ * Collection of helper methods which encode the scan settings of a Split as Split properties in the metadata handler
+ * and decode them again in the record handler.
+ * <p>
+ * Split properties can only hold strings so any BSON value, such as the bounds of a range, is serialized as
+ * canonical Extended JSON which preserves the BSON type of the value (e.g. an ObjectId remains an ObjectId).
+ */
+public final class SplitUtils {
+
+    //Split property holding the names of the collections that the split reads.
+    public static final String COLLECTIONS = "collections";
+    //Split property holding the name of the field on which the split is bounded.
+    public static final String RANGE_FIELD = "rangeField";
+    //Split property holding the inclusive lower bound of the split, absent if the split has no lower bound.
+    public static final String RANGE_LOW = "rangeLow";
+    //Split property holding the exclusive upper bound of the split, absent if the split has no upper bound.
+    public static final String RANGE_HIGH = "rangeHigh";
+    //Split property holding the read preference with which the split should be read, absent for the default.
+    public static final String READ_PREFERENCE = "readPreference";
+    private static final String VALUE_KEY = "v";
+    private static final String AND_OP = "$and";
+    private static final String NOT_OP = "$not";
+    private static final String GTE_OP = "$gte";
+    private static final String LT_OP = "$lt";
+    private static final String MODE_KEY = "mode";
+    private static final String TAGS_KEY = "tags";
+    private static final String MAX_STALENESS_KEY = "maxStalenessSeconds";
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    private SplitUtils() {
+    }
+
+    /**
+     * Adds the names of the collections that should be read to the given Split builder.
+     *
+     * @param builder         The builder of the Split which should read the collections.
+     * @param collectionNames The names of the collections to read.
+     * @return The same builder to allow chaining.
+     */
+    public static Split.Builder withCollections(Split.Builder builder, List<String> collectionNames) {
+        return builder.add(COLLECTIONS, serialize(collectionNames));
+    }
+
+    /**
+     * Gets the names of the collections that the given Split should read.
+     *
+     * @param split The split that is being read.
+     * @return The names of the collections or null if the split doesn't name its collections.
+     */
+    public static List<String> getCollections(Split split) {
+        String collectionNames = split.getProperty(COLLECTIONS);
+        if (collectionNames == null) {
+            return null;
+        }
+        return Document.parse(collectionNames).getList(VALUE_KEY, String.class);
+    }
+
+    /**
+     * Adds the bounds of a range to the given Split builder. Either of the bounds may be null in which case the range
+     * is unbounded on that side.
+     *
+     * @param builder The builder of the Split which should be bounded.
+     * @param field   The name of the field on which the split is bounded.
+     * @param low     The inclusive lower bound or null if the split has no lower bound.
+     * @param high    The exclusive upper bound or null if the split has no upper bound.
+     * @return The same builder to allow chaining.
+     */
+    public static Split.Builder withRange(Split.Builder builder, String field, Object low, Object high) {
+        builder.add(RANGE_FIELD, field);
+        if (low != null) {
+            builder.add(RANGE_LOW, serialize(low));
+        }
+        if (high != null) {
+            builder.add(RANGE_HIGH, serialize(high));
+        }
+        return builder;
+    }
+
+    /**
+     * Given a query built from the constraints of the request, narrows it down to the range of the given Split. If the
+     * Split isn't bounded, the query is returned as-is.
+     * <p>
+     * A split without a lower bound is expressed as a negated {@code $gte} rather than a {@code $lt}. Comparison
+     * operators only match values of the same BSON type, so the negation ensures that the first split also reads
+     * documents whose field is missing, null or of a different type than the bounds. Since all the other splits only
+     * match values of the bounds' type, every document is read by exactly one split.
+     *
+     * @param split The split that is being read.
+     * @param query The query built from the constraints of the request.
+     * @return The query narrowed to the range of the split.
+     */
+    public static Document applyRange(Split split, Document query) {
+        String field = split.getProperty(RANGE_FIELD);
+        if (field == null) {
+            return query;
+        }
+
+        String low = split.getProperty(RANGE_LOW);
+        String high = split.getProperty(RANGE_HIGH);
+        Document rangePredicate;
+        if (low == null && high == null) {
+            return query;
+        } else if (low == null) {
+            rangePredicate = new Document(field, new Document(NOT_OP, new Document(GTE_OP, deserialize(high))));
+        } else if (high == null) {
+            rangePredicate = new Document(field, new Document(GTE_OP, deserialize(low)));
+        } else {
+            rangePredicate = new Document(field, new Document(GTE_OP, deserialize(low)).append(LT_OP, deserialize(high)));
+        }
+
+        if (query.isEmpty()) {
+            return rangePredicate;
+        }
+        return new Document(AND_OP, List.of(query, rangePredicate));
+    }
+
+    /**
+     * Adds the read preference with which the split should be read to the given Split builder.
+     *
+     * @param builder        The builder of the Split which should be routed.
+     * @param readPreference The read preference or null to read with the default read preference of the connection.
+     * @return The same builder to allow chaining.
+     */
+    public static Split.Builder withReadPreference(Split.Builder builder, ReadPreference readPreference) {
+        if (readPreference != null) {
+            builder.add(READ_PREFERENCE, readPreference.toDocument().toJson());
+        }
+        return builder;
+    }
+
+    /**
+     * Routes reads of the given collection according to the read preference of the given Split. If the Split doesn't
+     * have a read preference, the collection is returned as-is.
+     *
+     * @param split      The split that is being read.
+     * @param collection The collection that is being read.
+     * @return The collection with the read preference of the split.
+     */
+    public static <T> MongoCollection<T> applyReadPreference(Split split, MongoCollection<T> collection) {
+        ReadPreference readPreference = getReadPreference(split);
+        return readPreference == null ? collection : collection.withReadPreference(readPreference);
+    }
+
+    /**
+     * Reads the read preference of the given Split.
+     *
+     * @param split The split that is being read.
+     * @return The read preference of the split, or null if the split doesn't have one.
+     */
+    public static ReadPreference getReadPreference(Split split) {
+        String readPreference = split.getProperty(READ_PREFERENCE);
+        if (readPreference == null) {
+            return null;
+        }
+
+        BsonDocument document = BsonDocument.parse(readPreference);
+        String mode = document.getString(MODE_KEY).getValue();
+        if (ReadPreference.primary().getName().equals(mode)) {
+            return ReadPreference.primary();
+        }
+
+        List<TagSet> tagSets = new ArrayList<>();
+        for (BsonValue tagSet : document.getArray(TAGS_KEY, new BsonArray())) {
+            List<Tag> tags = new ArrayList<>();
+            tagSet.asDocument().forEach((name, value) -> tags.add(new Tag(name, value.asString().getValue())));
+            tagSets.add(new TagSet(tags));
+        }
+        if (!document.containsKey(MAX_STALENESS_KEY)) {
+            return ReadPreference.valueOf(mode, tagSets);
+        }
+        long maxStaleness = document.getNumber(MAX_STALENESS_KEY).longValue();
+        return ReadPreference.valueOf(mode, tagSets, maxStaleness, TimeUnit.SECONDS);
+    }
+
+    private static String serialize(Object value) {
+        return new Document(VALUE_KEY, value).toJson(JSON_SETTINGS);
+    }
+
+    private static Object deserialize(String json) {
+        return Document.parse(json).get(VALUE_KEY);
+    }
+}
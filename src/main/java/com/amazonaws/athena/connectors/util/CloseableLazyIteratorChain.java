@@ -59,12 +59,12 @@ public abstract class CloseableLazyIteratorChain<E> implements CloseableIterator
     /**
      * Indicates that the Iterator chain has been exhausted.
      */
-    private boolean chainExhausted = false;
+    private volatile boolean chainExhausted = false;
 
     /**
      * The current iterator.
      */
-    private Iterator<? extends E> currentIterator = null;
+    private volatile Iterator<? extends E> currentIterator = null;
 
     /**
      * Gets the next iterator after the previous one has been exhausted.
@@ -76,11 +76,21 @@ public abstract class CloseableLazyIteratorChain<E> implements CloseableIterator
      */
     protected abstract Iterator<? extends E> nextIterator(int count);
 
+    /**
+     * Closes the current iterator and ends the chain, so that no further iterators are obtained. The chain may be
+     * closed from another thread while it is being iterated over.
+     */
     @Override
     public void close() {
-        if (this.currentIterator != null && this.currentIterator instanceof Closeable) {
+        chainExhausted = true;
+        closeCurrentIterator();
+    }
+
+    private void closeCurrentIterator() {
+        Iterator<? extends E> currentIterator = this.currentIterator;
+        if (currentIterator instanceof Closeable) {
             try {
-                ((Closeable) this.currentIterator).close();
+                ((Closeable) currentIterator).close();
             } catch (IOException e) {
                 throw new RuntimeException("Unable to close the current iterator", e);
             }
@@ -92,18 +102,18 @@ public abstract class CloseableLazyIteratorChain<E> implements CloseableIterator
      * is not exhausted.
      */
     private void updateCurrentIterator() {
-        if (callCounter == 0) {
-            currentIterator = nextIterator(++callCounter);
+        if (currentIterator == null) {
+            currentIterator = chainExhausted ? null : nextIterator(++callCounter);
             if (currentIterator == null) {
                 currentIterator = EmptyIterator.emptyIterator();
                 chainExhausted = true;
             }
         }
 
-        if (!currentIterator.hasNext() && !chainExhausted) {
+        while (!currentIterator.hasNext() && !chainExhausted) {
             final Iterator<? extends E> nextIterator = nextIterator(++callCounter);
             if (nextIterator != null) {
-                this.close();
+                closeCurrentIterator();
                 currentIterator = nextIterator;
             } else {
                 chainExhausted = true;
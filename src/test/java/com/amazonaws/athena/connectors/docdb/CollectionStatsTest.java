@@ -0,0 +1,39 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+
+public class CollectionStatsTest extends RealMongoTest {
+
+    @Test
+    public void testThatStatsAreRead() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            MongoCollection<Document> collection = mongoClient.getDatabase("bravo").getCollection("moo");
+            collection.insertMany(IntStream.range(0, 100)
+                    .mapToObj(i -> new Document("payload", "x".repeat(1000)))
+                    .collect(Collectors.toList()));
+
+            CollectionStats stats = CollectionStats.of(collection);
+            assertEquals(100, stats.getCount());
+            assertTrue(stats.getAvgObjSize() > 1000);
+            assertTrue(stats.getSplitWeight(10_000, Long.MAX_VALUE) > 10);
+        }
+    }
+
+    @Test
+    public void testThatSplitWeightIsTheLargerRatio() {
+        CollectionStats stats = new CollectionStats(1000, 4000, 0);
+        assertEquals(4.0, stats.getSplitWeight(1000, 10_000), 0.0);
+        assertEquals(10.0, stats.getSplitWeight(1_000_000, 100), 0.0);
+    }
+}
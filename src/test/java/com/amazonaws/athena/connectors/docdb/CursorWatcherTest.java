@@ -0,0 +1,88 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.amazonaws.athena.connectors.util.CloseableIterator;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+public class CursorWatcherTest extends RealMongoTest {
+
+    @Test
+    public void testThatCursorsAreClosedOnceTheQueryIsNoLongerRunning() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch closed = new CountDownLatch(1);
+
+        try (CursorWatcher watcher = new CursorWatcher(running::get, new EmptyCursor(closed), 10)) {
+            assertFalse(closed.await(100, TimeUnit.MILLISECONDS));
+            assertFalse(watcher.isCancelled());
+
+            running.set(false);
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+            assertTrue(watcher.isCancelled());
+        }
+    }
+
+    @Test
+    public void testThatCancelledCursorsAreKilledOnTheServer() throws InterruptedException {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            List<Document> documents = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                documents.add(new Document("n", i));
+            }
+            mongoClient.getDatabase("watched").getCollection("numbers").insertMany(documents);
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            ChainedMongoCursor<Document> cursor = new ChainedMongoCursor<>("watched", List.of("numbers"), mongoClient, 2,
+                    collection -> collection.find().batchSize(5));
+            try (cursor; CursorWatcher watcher = new CursorWatcher(running::get, cursor, 10)) {
+                assertTrue(cursor.hasNext());
+                cursor.next();
+
+                running.set(false);
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (!watcher.isCancelled() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertTrue(watcher.isCancelled());
+            }
+
+            assertEquals(0, awaitNoOpenCursors(mongoClient, 5_000));
+        }
+    }
+
+    private static class EmptyCursor implements CloseableIterator<Object> {
+
+        private final CountDownLatch closed;
+
+        private EmptyCursor(CountDownLatch closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        public Object next() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static com.amazonaws.athena.connector.lambda.domain.predicate.Constraints.DEFAULT_NO_LIMIT;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.bson.Document;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.data.SimpleBlockWriter;
+import com.amazonaws.athena.connector.lambda.domain.TableName;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.metadata.GetTableLayoutRequest;
+import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+public class DoGetPartitionsTest extends RealMongoTest implements AthenaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoGetPartitionsTest.class);
+
+    @Test
+    public void testThatEveryCollectionIsAPartition() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            mongoClient.getDatabase("alpha").getCollection("foo_1").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("foo_2").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("bar").insertOne(new Document());
+
+            DoGetPartitions getPartitions = newGetPartitions(mongoClient, "foo_{{myid}}");
+
+            Schema tableSchema = SchemaBuilder.newBuilder().addStringField("_id").addStringField("myid").build();
+            SchemaBuilder partitionSchema = SchemaBuilder.newBuilder().addStringField("myid");
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            GetTableLayoutRequest request = new GetTableLayoutRequest(getIdentity(), generateId(), "missing", new TableName("alpha", "foo_myid"), constraints, tableSchema, Set.of("myid"));
+            getPartitions.enhancePartitionSchema(partitionSchema, request);
+
+            Block partitions = new BlockAllocatorImpl().createBlock(partitionSchema.build());
+            getPartitions.getPartitions(new SimpleBlockWriter(partitions), request, () -> true);
+
+            assertEquals(2, partitions.getRowCount());
+            FieldReader myid = partitions.getFieldReader("myid");
+            FieldReader collectionName = partitions.getFieldReader(DoGetPartitions.COLLECTION_NAME_COL);
+            List<String> rows = new ArrayList<>();
+            for (int i = 0; i < partitions.getRowCount(); i++) {
+                myid.setPosition(i);
+                collectionName.setPosition(i);
+                rows.add(myid.readText() + "=" + collectionName.readText());
+            }
+            assertEquals(List.of("1=foo_1", "2=foo_2"), rows);
+        }
+    }
+
+    @Test
+    public void testThatGroupsMatchTheLowerCasedColumnsOfGlue() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            mongoClient.getDatabase("beta").getCollection("orders_7").insertOne(new Document());
+
+            DoGetPartitions getPartitions = newGetPartitions(mongoClient, "orders_{{tenantId}}");
+
+            Schema tableSchema = SchemaBuilder.newBuilder().addStringField("_id").addStringField("tenantid").build();
+            SchemaBuilder partitionSchema = SchemaBuilder.newBuilder().addStringField("tenantid");
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            GetTableLayoutRequest request = new GetTableLayoutRequest(getIdentity(), generateId(), "missing", new TableName("beta", "orders_tenantid"), constraints, tableSchema, Set.of("tenantid"));
+            getPartitions.enhancePartitionSchema(partitionSchema, request);
+
+            Block partitions = new BlockAllocatorImpl().createBlock(partitionSchema.build());
+            getPartitions.getPartitions(new SimpleBlockWriter(partitions), request, () -> true);
+
+            assertEquals(1, partitions.getRowCount());
+            FieldReader tenantId = partitions.getFieldReader("tenantid");
+            tenantId.setPosition(0);
+            assertEquals("7", tenantId.readText().toString());
+        }
+    }
+
+    private DoGetPartitions newGetPartitions(MongoClient mongoClient, String pattern) {
+        return new DoGetPartitions() {
+
+            @Override
+            public MongoClient getOrCreateConn(MetadataRequest request) {
+                return mongoClient;
+            }
+
+            @Override
+            public Logger getLogger() {
+                return logger;
+            }
+
+            @Override
+            public GlobHandler getGlobHandler() {
+                return new GlobHandler(pattern);
+            }
+        };
+    }
+}
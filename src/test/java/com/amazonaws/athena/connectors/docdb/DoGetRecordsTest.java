@@ -1,22 +1,43 @@
 package com.amazonaws.athena.connectors.docdb;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.arrow.vector.complex.reader.FieldReader;
 import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Schema;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
 import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
 import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.ConstantExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.FederationExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.FunctionCallExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.VariableExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.functions.StandardFunctions;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.athena.connectors.InMemorySingleBlockSpiller;
 import com.mongodb.client.MongoClient;
@@ -51,16 +72,383 @@ public class DoGetRecordsTest extends RealMongoTest implements AthenaTest {
 
         Split split = Split.newBuilder(null, null).build();
 
-        DoGetRecords getRecords = new DoGetRecords() {
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), Integer.MAX_VALUE, new GlobHandler());
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("foo", "Person_1"), schema, split, new Constraints(Collections.emptyMap()), Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+        System.out.println(blockSpiller.getBlock().getRowCount());
+    }
+
+    @Test
+    public void testThatGlobFieldsAreFilledFromCollectionNames() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+
+        new FixturesBuilder(mongoClient)
+                .withDatabase("foo", database -> database
+                        .withCollection("Person_1", PersonEntity.class, () ->
+                                List.of(new PersonEntity("john", 2), new PersonEntity("jack", 40)))
+                        .withCollection("Person_2", PersonEntity.class, () ->
+                                List.of(new PersonEntity("sanny", 5))));
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .addField("tenant", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), Integer.MAX_VALUE, new GlobHandler("Person_{{tenant}}"));
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("foo", "Person_tenant"), schema, split, new Constraints(Collections.emptyMap()), Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        Block block = blockSpiller.getBlock();
+        FieldReader name = block.getFieldReader("name");
+        FieldReader tenant = block.getFieldReader("tenant");
+        Set<String> rows = new HashSet<>();
+        for (int i = 0; i < block.getRowCount(); i++) {
+            name.setPosition(i);
+            tenant.setPosition(i);
+            rows.add(name.readText() + "@" + tenant.readText());
+        }
+        assertEquals(Set.of("john@1", "jack@1", "sanny@2"), rows);
+    }
+
+    @Test
+    public void testThatCasedFieldsAreResolvedWhenCasingIsDisabled() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        List<Document> documents = new ArrayList<>();
+        documents.add(new Document("Name", "john").append("AGE", 2).append("unused", "x"));
+        documents.add(new Document("name", "jack").append("Age", 40));
+        for (int i = 0; i < 500; i++) {
+            documents.add(new Document("name", "person" + i).append("age", i));
+        }
+        // A casing which only a single document uses is read as well.
+        documents.add(new Document("NAME", "jill").append("aGe", 30));
+        mongoClient.getDatabase("cased").getCollection("People").insertMany(documents);
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("age", Types.MinorType.INT.getType())
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Map.of(DISABLE_PROJECTION_AND_CASING_ENV, "true"), Integer.MAX_VALUE, new GlobHandler());
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("cased", "people"), schema, split, new Constraints(Collections.emptyMap()), Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        Block block = blockSpiller.getBlock();
+        FieldReader name = block.getFieldReader("name");
+        FieldReader age = block.getFieldReader("age");
+        Set<String> rows = new HashSet<>();
+        for (int i = 0; i < block.getRowCount(); i++) {
+            name.setPosition(i);
+            age.setPosition(i);
+            rows.add(name.readText() + "@" + age.readInteger());
+        }
+        assertEquals(503, rows.size());
+        assertTrue(rows.containsAll(Set.of("john@2", "jack@40", "jill@30")));
+    }
+
+    @Test
+    public void testThatExpressionsAreEvaluatedByTheServer() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        mongoClient.getDatabase("expressions").getCollection("people").insertMany(List.of(
+                new Document("name", "john").append("age", 2),
+                new Document("name", "jack").append("age", 40),
+                // A numeric string is converted by $convert on the server and by the row writer when it is read.
+                new Document("name", "jill").append("age", "30"),
+                new Document("name", "kate").append("age", 7),
+                new Document("name", "ajack").append("age", 50),
+                new Document("name", "nancy")));
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("age", Types.MinorType.INT.getType())
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), Integer.MAX_VALUE, new GlobHandler());
+
+        ArrowType intType = Types.MinorType.INT.getType();
+        ArrowType varcharType = Types.MinorType.VARCHAR.getType();
+        ArrowType bitType = Types.MinorType.BIT.getType();
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        // age * 2 > 10 AND NOT(name = 'kate') AND name LIKE 'j%', where LIKE is translated into a regex.
+        List<FederationExpression> expressions = List.of(
+                new FunctionCallExpression(bitType, StandardFunctions.GREATER_THAN_OPERATOR_FUNCTION_NAME.getFunctionName(), List.of(
+                        new FunctionCallExpression(intType, StandardFunctions.MULTIPLY_FUNCTION_NAME.getFunctionName(), List.of(
+                                new VariableExpression("age", intType),
+                                new ConstantExpression(BlockUtils.newBlock(allocator, "c", intType, 2), intType))),
+                        new ConstantExpression(BlockUtils.newBlock(allocator, "c", intType, 10), intType))),
+                new FunctionCallExpression(bitType, StandardFunctions.NOT_FUNCTION_NAME.getFunctionName(), List.of(
+                        new FunctionCallExpression(bitType, StandardFunctions.EQUAL_OPERATOR_FUNCTION_NAME.getFunctionName(), List.of(
+                                new VariableExpression("name", varcharType),
+                                new ConstantExpression(BlockUtils.newBlock(allocator, "c", varcharType, "kate"), varcharType))))),
+                new FunctionCallExpression(bitType, StandardFunctions.LIKE_PATTERN_FUNCTION_NAME.getFunctionName(), List.of(
+                        new VariableExpression("name", varcharType),
+                        new ConstantExpression(BlockUtils.newBlock(allocator, "c", varcharType, "j%"), varcharType))));
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        Constraints constraints = new Constraints(Collections.emptyMap(), expressions, Collections.emptyList(), Constraints.DEFAULT_NO_LIMIT);
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("expressions", "people"), schema, split, constraints, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        Block block = blockSpiller.getBlock();
+        FieldReader name = block.getFieldReader("name");
+        FieldReader age = block.getFieldReader("age");
+        Set<String> rows = new HashSet<>();
+        for (int i = 0; i < block.getRowCount(); i++) {
+            name.setPosition(i);
+            age.setPosition(i);
+            rows.add(name.readText() + "@" + age.readInteger());
+        }
+        assertEquals(Set.of("jack@40", "jill@30"), rows);
+    }
+
+    @Test
+    public void testThatDivisionsByZeroDoNotFailTheQuery() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        mongoClient.getDatabase("divided").getCollection("people").insertMany(List.of(
+                new Document("name", "john").append("age", 40).append("children", 2),
+                new Document("name", "jack").append("age", 30).append("children", 0),
+                new Document("name", "jill").append("age", 9).append("children", 3)));
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("age", Types.MinorType.INT.getType())
+                .addField("children", Types.MinorType.INT.getType())
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), Integer.MAX_VALUE, new GlobHandler());
+
+        ArrowType intType = Types.MinorType.INT.getType();
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        // age / children > 5 AND age % children = 0
+        List<FederationExpression> expressions = List.of(
+                new FunctionCallExpression(Types.MinorType.BIT.getType(), StandardFunctions.GREATER_THAN_OPERATOR_FUNCTION_NAME.getFunctionName(), List.of(
+                        new FunctionCallExpression(intType, StandardFunctions.DIVIDE_FUNCTION_NAME.getFunctionName(), List.of(
+                                new VariableExpression("age", intType),
+                                new VariableExpression("children", intType))),
+                        new ConstantExpression(BlockUtils.newBlock(allocator, "c", intType, 5), intType))),
+                new FunctionCallExpression(Types.MinorType.BIT.getType(), StandardFunctions.EQUAL_OPERATOR_FUNCTION_NAME.getFunctionName(), List.of(
+                        new FunctionCallExpression(intType, StandardFunctions.MODULUS_FUNCTION_NAME.getFunctionName(), List.of(
+                                new VariableExpression("age", intType),
+                                new VariableExpression("children", intType))),
+                        new ConstantExpression(BlockUtils.newBlock(allocator, "c", intType, 0), intType))));
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        Constraints constraints = new Constraints(Collections.emptyMap(), expressions, Collections.emptyList(), Constraints.DEFAULT_NO_LIMIT);
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("divided", "people"), schema, split, constraints, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        Block block = blockSpiller.getBlock();
+        FieldReader name = block.getFieldReader("name");
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < block.getRowCount(); i++) {
+            name.setPosition(i);
+            names.add(name.readText().toString());
+        }
+        assertEquals(Set.of("john"), names);
+    }
+
+    @Test
+    public void testThatDocumentsAreWrittenInBatches() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            documents.add(new Document("name", "person" + i).append("age", i));
+        }
+        mongoClient.getDatabase("batched").getCollection("people").insertMany(documents);
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("age", Types.MinorType.INT.getType())
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), 64, new GlobHandler());
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("batched", "people"), schema, split, new Constraints(Collections.emptyMap()), Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        Block block = blockSpiller.getBlock();
+        assertEquals(250, block.getRowCount());
+        Set<Integer> ages = new HashSet<>();
+        FieldReader age = block.getFieldReader("age");
+        for (int i = 0; i < block.getRowCount(); i++) {
+            age.setPosition(i);
+            ages.add(age.readInteger());
+        }
+        assertEquals(250, ages.size());
+    }
+
+    @Test
+    public void testThatTheLimitIsSharedByTheCollections() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        for (String collectionName : List.of("Person_1", "Person_2")) {
+            List<Document> documents = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                documents.add(new Document("name", collectionName + i));
+            }
+            mongoClient.getDatabase("limited").getCollection(collectionName).insertMany(documents);
+        }
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Map.of(PARALLEL_COLLECTIONS_ENV, "1"), 16, new GlobHandler("Person_{{tenant}}"));
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), 150);
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("limited", "Person_tenant"), schema, split, constraints, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        assertEquals(150, blockSpiller.getBlock().getRowCount());
+    }
+
+    @Test
+    public void testThatRowsRejectedAfterCoercionDoNotCountTowardsTheLimit() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        // 5.5 satisfies score > 5 on the server, but is read as 5 into the BIGINT column.
+        mongoClient.getDatabase("coerced").getCollection("scores").insertMany(List.of(
+                new Document("name", "a").append("score", 5.5),
+                new Document("name", "b").append("score", 5.5),
+                new Document("name", "c").append("score", 6),
+                new Document("name", "d").append("score", 7)));
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("score", Types.MinorType.BIGINT.getType())
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), 16, new GlobHandler());
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        Map<String, ValueSet> summary = Map.of("score", SortedRangeSet.of(Range.greaterThan(allocator, Types.MinorType.BIGINT.getType(), 5L)));
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        Constraints constraints = new Constraints(summary, Collections.emptyList(), Collections.emptyList(), 2);
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("coerced", "scores"), schema, split, constraints, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        Block block = blockSpiller.getBlock();
+        FieldReader name = block.getFieldReader("name");
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < block.getRowCount(); i++) {
+            name.setPosition(i);
+            names.add(name.readText().toString());
+        }
+        assertEquals(Set.of("c", "d"), names);
+    }
+
+    @Test
+    public void testThatTheTopRowsAreMergedFromSortedCollections() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        for (String collectionName : List.of("Person_1", "Person_2", "Person_3")) {
+            List<Document> documents = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                documents.add(new Document("name", collectionName + i).append("age", (i * 7 + collectionName.hashCode()) % 100));
+            }
+            documents.add(new Document("name", collectionName + "unknown"));
+            mongoClient.getDatabase("sorted").getCollection(collectionName).insertMany(documents);
+        }
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("age", Types.MinorType.INT.getType())
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), 4, new GlobHandler("Person_{{tenant}}"));
+
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(),
+                List.of(new OrderByField("age", OrderByField.Direction.DESC_NULLS_LAST)), 10);
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("sorted", "Person_tenant"), schema, split, constraints, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        List<Integer> expected = new ArrayList<>();
+        for (String collectionName : List.of("Person_1", "Person_2", "Person_3")) {
+            for (int i = 0; i < 50; i++) {
+                expected.add((i * 7 + collectionName.hashCode()) % 100);
+            }
+        }
+        expected.sort(Collections.reverseOrder());
+
+        Block block = blockSpiller.getBlock();
+        FieldReader age = block.getFieldReader("age");
+        List<Integer> ages = new ArrayList<>();
+        for (int i = 0; i < block.getRowCount(); i++) {
+            age.setPosition(i);
+            ages.add(age.readInteger());
+        }
+        assertEquals(expected.subList(0, 10), ages);
+    }
+
+    @Test
+    public void testThatCollectionsWithValuesOfOtherTypesAreNotSorted() {
+        MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+        mongoClient.getDatabase("mixed").getCollection("Person_1").insertMany(List.of(
+                new Document("name", "a").append("age", 5),
+                new Document("name", "b").append("age", 9)));
+        // MongoDB orders the boolean after the numbers, while Athena reads it as 1, which is the lowest age.
+        mongoClient.getDatabase("mixed").getCollection("Person_2").insertMany(List.of(
+                new Document("name", "c").append("age", 3),
+                new Document("name", "d").append("age", true)));
+
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("age", Types.MinorType.INT.getType())
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        Split split = Split.newBuilder(null, null).build();
+
+        DoGetRecords getRecords = newGetRecords(mongoClient, Collections.emptyMap(), 4, new GlobHandler("Person_{{tenant}}"));
+
+        // Neither the sort nor the limit is pushed down, so every row is returned for Athena to order.
+        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
+        Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(),
+                List.of(new OrderByField("age", OrderByField.Direction.ASC_NULLS_FIRST)), 1);
+        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("mixed", "Person_tenant"), schema, split, constraints, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        getRecords.readWithConstraint(blockSpiller, request, () -> true);
+
+        Block block = blockSpiller.getBlock();
+        FieldReader name = block.getFieldReader("name");
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < block.getRowCount(); i++) {
+            name.setPosition(i);
+            names.add(name.readText().toString());
+        }
+        assertEquals(Set.of("a", "b", "c", "d"), names);
+    }
+
+    private static DoGetRecords newGetRecords(MongoClient mongoClient, Map<String, String> config, int batchSize, GlobHandler globHandler) {
+        return new DoGetRecords() {
 
             @Override
             public Map<String, String> getConfig() {
-                return Collections.emptyMap();
+                return config;
             }
 
             @Override
             public int getBatchSize() {
-                return Integer.MAX_VALUE;
+                return batchSize;
             }
 
             @Override
@@ -68,6 +456,11 @@ public class DoGetRecordsTest extends RealMongoTest implements AthenaTest {
                 return mongoClient;
             }
 
+            @Override
+            public com.mongodb.reactivestreams.client.MongoClient getOrCreateReactiveConn(Split split) {
+                throw new UnsupportedOperationException();
+            }
+
             @Override
             public Logger getLogger() {
                 return logger;
@@ -75,14 +468,9 @@ public class DoGetRecordsTest extends RealMongoTest implements AthenaTest {
 
             @Override
             public GlobHandler getGlobHandler() {
-                return new GlobHandler();
+                return globHandler;
             }
         };
-
-        BlockSpiller blockSpiller = new InMemorySingleBlockSpiller(schema, ConstraintEvaluator.emptyEvaluator());
-        ReadRecordsRequest request = new ReadRecordsRequest(getIdentity(), "missing", generateId(), new TableName("foo", "Person_1"), schema, split, new Constraints(Collections.emptyMap()), Integer.MAX_VALUE, Integer.MAX_VALUE);
-        getRecords.readWithConstraint(blockSpiller, request, () -> true);
-        System.out.println(blockSpiller.getBlock().getRowCount());
     }
 
     @Entity("persons")
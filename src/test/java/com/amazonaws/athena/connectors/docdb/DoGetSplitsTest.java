@@ -3,18 +3,30 @@ package com.amazonaws.athena.connectors.docdb;
 import static com.amazonaws.athena.connector.lambda.domain.predicate.Constraints.DEFAULT_NO_LIMIT;
 import static com.amazonaws.athena.connectors.docdb.DocDBMetadataHandler.DOCDB_CONN_STR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.arrow.vector.types.Types;
 import org.bson.Document;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.amazonaws.athena.connector.lambda.data.Block;
 import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
 import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
 import com.amazonaws.athena.connector.lambda.domain.Split;
 import com.amazonaws.athena.connector.lambda.domain.TableName;
 import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
@@ -23,11 +35,18 @@ import com.amazonaws.athena.connector.lambda.metadata.GetSplitsRequest;
 import com.amazonaws.athena.connector.lambda.metadata.GetSplitsResponse;
 import com.amazonaws.athena.connector.lambda.metadata.MetadataRequest;
 import com.amazonaws.athena.connector.lambda.security.EncryptionKey;
+import com.mongodb.ReadPreference;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Indexes;
 
 public class DoGetSplitsTest extends RealMongoTest implements AthenaTest {
 
+    private static final Logger logger = LoggerFactory.getLogger(DoGetSplitsTest.class);
+
     @Test
     public void doGetSplits() {
         try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
@@ -35,29 +54,265 @@ public class DoGetSplitsTest extends RealMongoTest implements AthenaTest {
 
             mongoClient.getDatabase("bravo").getCollection("moo").insertOne(new Document());
 
-            DoGetSplits getSplits = new DoGetSplits() {
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Collections.emptyMap(), new GlobHandler());
 
-                @Override
-                public String getConnStr(MetadataRequest request) {
-                    return mongoDBContainer.getConnectionString();
-                }
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            Block partition = BlockUtils.newBlock(new BlockAllocatorImpl(), "partition_id", Types.MinorType.INT.getType(), 0);
+            GetSplitsResponse response = new GetSplitsResponse("missing", Set.of(SplitUtils.withCollections(Split.newBuilder(null, fixedKey).add(DOCDB_CONN_STR, mongoDBContainer.getConnectionString()), List.of("moo")).build()), null);
+            GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("bravo", "moo"), partition, Collections.emptyList(), constraints, null);
+            assertEquals(response, getSplits.doGetSplits(new BlockAllocatorImpl(), request));
+        }
+    }
 
-                @Override
-                public EncryptionKey makeEncryptionKey() {
-                    return fixedKey;
-                }
+    @Test
+    public void testThatLargeCollectionsAreSplitByIdRanges() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            EncryptionKey fixedKey = new EncryptionKey("".getBytes(StandardCharsets.UTF_8), "".getBytes(StandardCharsets.UTF_8));
 
-                @Override
-                public SpillLocation makeSpillLocation(GetSplitsRequest request) {
-                    return null;
-                }
-            };
+            MongoCollection<Document> collection = mongoClient.getDatabase("bravo").getCollection("moo");
+            collection.insertMany(IntStream.range(0, 1000)
+                    .mapToObj(i -> new Document("i", i))
+                    .collect(Collectors.toList()));
+            collection.insertOne(new Document("_id", "not-an-object-id"));
+
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Map.of(DoGetSplits.SPLIT_TARGET_DOCS_ENV, "100"), new GlobHandler());
 
             Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
             Block partition = BlockUtils.newBlock(new BlockAllocatorImpl(), "partition_id", Types.MinorType.INT.getType(), 0);
-            GetSplitsResponse response = new GetSplitsResponse("missing", Set.of(Split.newBuilder(null, fixedKey).add(DOCDB_CONN_STR, mongoDBContainer.getConnectionString()).build()), null);
             GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("bravo", "moo"), partition, Collections.emptyList(), constraints, null);
-            assertEquals(response, getSplits.doGetSplits(new BlockAllocatorImpl(), request));
+            GetSplitsResponse response = getSplits.doGetSplits(new BlockAllocatorImpl(), request);
+
+            assertTrue(response.getSplits().size() > 1);
+            long total = 0;
+            for (Split split : response.getSplits()) {
+                total += collection.countDocuments(SplitUtils.applyRange(split, new Document()));
+            }
+            assertEquals(1001, total);
+        }
+    }
+
+    @Test
+    public void testThatCollectionsAreSplitByDateWindows() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            EncryptionKey fixedKey = new EncryptionKey("".getBytes(StandardCharsets.UTF_8), "".getBytes(StandardCharsets.UTF_8));
+
+            MongoCollection<Document> collection = mongoClient.getDatabase("bravo").getCollection("events");
+            collection.createIndex(Indexes.ascending("createdAt"));
+            Instant start = Instant.parse("2023-01-01T00:00:00Z");
+            collection.insertMany(IntStream.range(0, 70)
+                    .mapToObj(i -> new Document("createdAt", Date.from(start.plus(Duration.ofDays(i)))))
+                    .collect(Collectors.toList()));
+            collection.insertOne(new Document("createdAt", "not-a-date"));
+
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Map.of(
+                    DoGetSplits.SPLIT_TARGET_DOCS_ENV, "10",
+                    DoGetSplits.SPLIT_DATE_FIELDS_ENV, "moo:updatedAt,events:createdAt",
+                    DoGetSplits.SPLIT_DATE_WINDOW_ENV, "P7D"), new GlobHandler());
+
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            Block partition = BlockUtils.newBlock(new BlockAllocatorImpl(), "partition_id", Types.MinorType.INT.getType(), 0);
+            GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("bravo", "events"), partition, Collections.emptyList(), constraints, null);
+            GetSplitsResponse response = getSplits.doGetSplits(new BlockAllocatorImpl(), request);
+
+            assertEquals(10, response.getSplits().size());
+            long total = 0;
+            for (Split split : response.getSplits()) {
+                assertEquals("createdAt", split.getProperty(SplitUtils.RANGE_FIELD));
+                total += collection.countDocuments(SplitUtils.applyRange(split, new Document()));
+            }
+            assertEquals(71, total);
+        }
+    }
+
+    @Test
+    public void testThatLightCollectionsAreNotSplitByDateWindows() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            EncryptionKey fixedKey = new EncryptionKey("".getBytes(StandardCharsets.UTF_8), "".getBytes(StandardCharsets.UTF_8));
+
+            MongoCollection<Document> collection = mongoClient.getDatabase("bravo").getCollection("events");
+            Instant start = Instant.parse("2023-01-01T00:00:00Z");
+            collection.insertMany(IntStream.range(0, 70)
+                    .mapToObj(i -> new Document("createdAt", Date.from(start.plus(Duration.ofDays(i)))))
+                    .collect(Collectors.toList()));
+
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Map.of(
+                    DoGetSplits.SPLIT_DATE_FIELDS_ENV, "events:createdAt",
+                    DoGetSplits.SPLIT_DATE_WINDOW_ENV, "P7D"), new GlobHandler());
+
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            Block partition = BlockUtils.newBlock(new BlockAllocatorImpl(), "partition_id", Types.MinorType.INT.getType(), 0);
+            GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("bravo", "events"), partition, Collections.emptyList(), constraints, null);
+            GetSplitsResponse response = getSplits.doGetSplits(new BlockAllocatorImpl(), request);
+
+            assertEquals(1, response.getSplits().size());
+            assertNull(response.getSplits().iterator().next().getProperty(SplitUtils.RANGE_FIELD));
+        }
+    }
+
+    @Test
+    public void testThatCollectionsWithDatesInArraysAreSplitByIdRanges() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            EncryptionKey fixedKey = new EncryptionKey("".getBytes(StandardCharsets.UTF_8), "".getBytes(StandardCharsets.UTF_8));
+
+            MongoCollection<Document> collection = mongoClient.getDatabase("bravo").getCollection("events");
+            Instant start = Instant.parse("2023-01-01T00:00:00Z");
+            collection.insertMany(IntStream.range(0, 70)
+                    .mapToObj(i -> new Document("createdAt", List.of(Date.from(start.plus(Duration.ofDays(i))))))
+                    .collect(Collectors.toList()));
+
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Map.of(
+                    DoGetSplits.SPLIT_TARGET_DOCS_ENV, "10",
+                    DoGetSplits.SPLIT_DATE_FIELDS_ENV, "events:createdAt",
+                    DoGetSplits.SPLIT_DATE_WINDOW_ENV, "P7D"), new GlobHandler());
+
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            Block partition = BlockUtils.newBlock(new BlockAllocatorImpl(), "partition_id", Types.MinorType.INT.getType(), 0);
+            GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("bravo", "events"), partition, Collections.emptyList(), constraints, null);
+            GetSplitsResponse response = getSplits.doGetSplits(new BlockAllocatorImpl(), request);
+
+            assertTrue(response.getSplits().size() > 1);
+            long total = 0;
+            for (Split split : response.getSplits()) {
+                assertEquals("_id", split.getProperty(SplitUtils.RANGE_FIELD));
+                total += collection.countDocuments(SplitUtils.applyRange(split, new Document()));
+            }
+            assertEquals(70, total);
+        }
+    }
+
+    @Test
+    public void testThatMultiTenantCollectionsAreReadBySeparateSplits() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            EncryptionKey fixedKey = new EncryptionKey("".getBytes(StandardCharsets.UTF_8), "".getBytes(StandardCharsets.UTF_8));
+
+            mongoClient.getDatabase("alpha").getCollection("foo_1").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("foo_2").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("foo_3").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("bar").insertOne(new Document());
+
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Map.of(DoGetSplits.MAX_COLLECTIONS_PER_SPLIT_ENV, "2"), new GlobHandler("foo_{{myid}}"));
+
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            Block partition = BlockUtils.newBlock(new BlockAllocatorImpl(), "partition_id", Types.MinorType.INT.getType(), 0);
+            GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("alpha", "foo_myid"), partition, Collections.emptyList(), constraints, null);
+            GetSplitsResponse response = getSplits.doGetSplits(new BlockAllocatorImpl(), request);
+
+            Set<List<String>> collections = response.getSplits().stream()
+                    .map(SplitUtils::getCollections)
+                    .collect(Collectors.toSet());
+            assertEquals(Set.of(List.of("foo_1", "foo_2"), List.of("foo_3")), collections);
+        }
+    }
+
+    @Test
+    public void testThatOnlyPartitionedCollectionsAreRead() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            EncryptionKey fixedKey = new EncryptionKey("".getBytes(StandardCharsets.UTF_8), "".getBytes(StandardCharsets.UTF_8));
+
+            mongoClient.getDatabase("alpha").getCollection("foo_1").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("foo_2").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("foo_3").insertOne(new Document());
+
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Collections.emptyMap(), new GlobHandler("foo_{{myid}}"));
+
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            Block partitions = new BlockAllocatorImpl().createBlock(SchemaBuilder.newBuilder()
+                    .addStringField("myid")
+                    .addStringField(DoGetPartitions.COLLECTION_NAME_COL)
+                    .build());
+            BlockUtils.setValue(partitions.getFieldVector("myid"), 0, "1");
+            BlockUtils.setValue(partitions.getFieldVector(DoGetPartitions.COLLECTION_NAME_COL), 0, "foo_1");
+            BlockUtils.setValue(partitions.getFieldVector("myid"), 1, "3");
+            BlockUtils.setValue(partitions.getFieldVector(DoGetPartitions.COLLECTION_NAME_COL), 1, "foo_3");
+            partitions.setRowCount(2);
+            GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("alpha", "foo_myid"), partitions, List.of("myid"), constraints, null);
+            GetSplitsResponse response = getSplits.doGetSplits(new BlockAllocatorImpl(), request);
+
+            Set<List<String>> collections = response.getSplits().stream()
+                    .map(SplitUtils::getCollections)
+                    .collect(Collectors.toSet());
+            assertEquals(Set.of(List.of("foo_1", "foo_3")), collections);
+        }
+    }
+
+    @Test
+    public void testThatSplitsAreRotatedAcrossTagSets() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            EncryptionKey fixedKey = new EncryptionKey("".getBytes(StandardCharsets.UTF_8), "".getBytes(StandardCharsets.UTF_8));
+
+            mongoClient.getDatabase("alpha").getCollection("foo_1").insertOne(new Document());
+            mongoClient.getDatabase("alpha").getCollection("foo_2").insertOne(new Document());
+
+            DoGetSplits getSplits = new TestGetSplits(mongoClient, fixedKey, Map.of(
+                    DoGetSplits.MAX_COLLECTIONS_PER_SPLIT_ENV, "1",
+                    DoGetSplits.READ_PREFERENCE_ENV, "primary",
+                    "missing_" + DoGetSplits.READ_PREFERENCE_ENV, "secondaryPreferred",
+                    DoGetSplits.READ_PREFERENCE_TAGS_ENV, "dc:east,use:analytics;dc:west"), new GlobHandler("foo_{{myid}}"));
+
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            Block partition = BlockUtils.newBlock(new BlockAllocatorImpl(), "partition_id", Types.MinorType.INT.getType(), 0);
+            GetSplitsRequest request = new GetSplitsRequest(getIdentity(), generateId(), "missing", new TableName("alpha", "foo_myid"), partition, Collections.emptyList(), constraints, null);
+            GetSplitsResponse response = getSplits.doGetSplits(new BlockAllocatorImpl(), request);
+
+            TagSet east = new TagSet(List.of(new Tag("dc", "east"), new Tag("use", "analytics")));
+            TagSet west = new TagSet(new Tag("dc", "west"));
+            MongoCollection<Document> collection = mongoClient.getDatabase("alpha").getCollection("foo_1");
+            Set<ReadPreference> readPreferences = response.getSplits().stream()
+                    .map(split -> SplitUtils.applyReadPreference(split, collection).getReadPreference())
+                    .collect(Collectors.toSet());
+            assertEquals(Set.of(
+                    ReadPreference.secondaryPreferred(List.of(east, west)),
+                    ReadPreference.secondaryPreferred(List.of(west, east))), readPreferences);
+        }
+    }
+
+    private class TestGetSplits implements DoGetSplits {
+
+        private final MongoClient mongoClient;
+        private final EncryptionKey fixedKey;
+        private final Map<String, String> config;
+        private final GlobHandler globHandler;
+
+        private TestGetSplits(MongoClient mongoClient, EncryptionKey fixedKey, Map<String, String> config, GlobHandler globHandler) {
+            this.mongoClient = mongoClient;
+            this.fixedKey = fixedKey;
+            this.config = config;
+            this.globHandler = globHandler;
+        }
+
+        @Override
+        public String getConnStr(MetadataRequest request) {
+            return mongoDBContainer.getConnectionString();
+        }
+
+        @Override
+        public EncryptionKey makeEncryptionKey() {
+            return fixedKey;
+        }
+
+        @Override
+        public SpillLocation makeSpillLocation(GetSplitsRequest request) {
+            return null;
+        }
+
+        @Override
+        public MongoClient getOrCreateConn(MetadataRequest request) {
+            return mongoClient;
+        }
+
+        @Override
+        public Map<String, String> getConfig() {
+            return config;
+        }
+
+        @Override
+        public Logger getLogger() {
+            return logger;
+        }
+
+        @Override
+        public GlobHandler getGlobHandler() {
+            return globHandler;
         }
     }
 }
@@ -3,6 +3,7 @@ package com.amazonaws.athena.connectors.docdb;
 import static org.junit.Assert.assertEquals;
 
 import java.util.List;
+import java.util.Set;
 
 import org.apache.arrow.vector.types.pojo.ArrowType.Utf8;
 import org.apache.arrow.vector.types.pojo.Field;
@@ -89,7 +90,7 @@ public class DoGetTableTest extends RealMongoTest implements AthenaTest {
                 }
             };
 
-            GetTableResponse response = new GetTableResponse("missing", new TableName("alpha", "foo_myid"), new Schema(List.of(new Field("_id", FieldType.nullable(Utf8.INSTANCE), null), new Field("myid", FieldType.nullable(Utf8.INSTANCE), null))));
+            GetTableResponse response = new GetTableResponse("missing", new TableName("alpha", "foo_myid"), new Schema(List.of(new Field("_id", FieldType.nullable(Utf8.INSTANCE), null), new Field("myid", FieldType.nullable(Utf8.INSTANCE), null))), Set.of("myid"));
             GetTableRequest request = new GetTableRequest(getIdentity(), generateId(), "missing", new TableName("alpha", "foo_myid"));
             assertEquals(response, getTable.doGetTable(request));
         }
@@ -0,0 +1,148 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static com.amazonaws.athena.connector.lambda.domain.predicate.Constraints.DEFAULT_NO_LIMIT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DateMilliVector;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.junit.Test;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+
+public class DocDBRowWriterTest {
+
+    private static final Field NAME = new Field("name", FieldType.nullable(Types.MinorType.VARCHAR.getType()), null);
+    private static final Field AGE = new Field("age", FieldType.nullable(Types.MinorType.INT.getType()), null);
+    private static final Field BORN = new Field("born", FieldType.nullable(Types.MinorType.DATEMILLI.getType()), null);
+    private static final Field TENANT = new Field("tenant", FieldType.nullable(Types.MinorType.VARCHAR.getType()), null);
+    private static final Field ACTIVE = new Field("active", FieldType.nullable(Types.MinorType.BIT.getType()), null);
+    private static final Field SCORE = new Field("score", FieldType.nullable(Types.MinorType.FLOAT8.getType()), null);
+    private static final Field BIRTHDAY = new Field("birthday", FieldType.nullable(Types.MinorType.DATEDAY.getType()), null);
+    private static final Field PRICE = new Field("price", FieldType.nullable(new ArrowType.Decimal(10, 2, 128)), null);
+    private static final Field PAYLOAD = new Field("payload", FieldType.nullable(Types.MinorType.VARBINARY.getType()), null);
+
+    @Test
+    public void testThatRowsAreWrittenIntoTheirVectors() {
+        try (BlockAllocator allocator = new BlockAllocatorImpl()) {
+            Block block = allocator.createBlock(new Schema(List.of(NAME, AGE, BORN, TENANT)));
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            DocDBRowWriter rowWriter = new DocDBRowWriter(constraints, List.of(NAME, AGE, BORN), List.of(TENANT));
+
+            assertTrue(rowWriter.writeRow(block, 0, new Object[]{"john", 42, new Date(1000)}, new Object[]{"1"}));
+            assertTrue(rowWriter.writeRow(block, 1, new Object[]{null, 7L, null}, new Object[]{"2"}));
+            block.setRowCount(2);
+
+            assertEquals("john", block.getFieldReader("name").readText().toString());
+            assertEquals(Integer.valueOf(42), block.getFieldReader("age").readInteger());
+            assertEquals(1000L, ((DateMilliVector) block.getFieldVector("born")).get(0));
+            assertEquals("1", block.getFieldReader("tenant").readText().toString());
+            assertNull(block.getFieldVector("name").getObject(1));
+            assertEquals(7, block.getFieldVector("age").getObject(1));
+            assertEquals("2", block.getFieldVector("tenant").getObject(1).toString());
+        }
+    }
+
+    @Test
+    public void testThatRowsAreCheckedAgainstTheConstraints() {
+        try (BlockAllocator allocator = new BlockAllocatorImpl()) {
+            Block block = allocator.createBlock(new Schema(List.of(NAME, AGE)));
+            Constraints constraints = new Constraints(Map.of("age", SortedRangeSet.of(Range.equal(allocator, AGE.getType(), 42))),
+                    Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            DocDBRowWriter rowWriter = new DocDBRowWriter(constraints, List.of(NAME, AGE), List.of());
+
+            assertTrue(rowWriter.writeRow(block, 0, new Object[]{"john", 42}, new Object[0]));
+            assertFalse(rowWriter.writeRow(block, 1, new Object[]{"jack", 40}, new Object[0]));
+        }
+    }
+
+    @Test
+    public void testThatValuesOfOtherTypesAreConverted() {
+        try (BlockAllocator allocator = new BlockAllocatorImpl()) {
+            List<Field> fields = List.of(AGE, ACTIVE, SCORE, PRICE);
+            Block block = allocator.createBlock(new Schema(fields));
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            DocDBRowWriter rowWriter = new DocDBRowWriter(constraints, fields, List.of());
+
+            assertTrue(rowWriter.writeRow(block, 0, new Object[]{"40", 1, "2.5", 3.5D}, new Object[0]));
+            assertTrue(rowWriter.writeRow(block, 1, new Object[]{new Decimal128(7), "false", new Decimal128(new BigDecimal("1.25")), "4.25"}, new Object[0]));
+            assertTrue(rowWriter.writeRow(block, 2, new Object[]{true, 0, "n/a", "n/a"}, new Object[0]));
+            block.setRowCount(3);
+
+            assertEquals(40, block.getFieldVector("age").getObject(0));
+            assertEquals(true, block.getFieldVector("active").getObject(0));
+            assertEquals(2.5D, block.getFieldVector("score").getObject(0));
+            assertEquals(new BigDecimal("3.50"), block.getFieldVector("price").getObject(0));
+
+            assertEquals(7, block.getFieldVector("age").getObject(1));
+            assertEquals(false, block.getFieldVector("active").getObject(1));
+            assertEquals(1.25D, block.getFieldVector("score").getObject(1));
+            assertEquals(new BigDecimal("4.25"), block.getFieldVector("price").getObject(1));
+
+            assertEquals(1, block.getFieldVector("age").getObject(2));
+            assertEquals(false, block.getFieldVector("active").getObject(2));
+            assertNull(block.getFieldVector("score").getObject(2));
+            assertNull(block.getFieldVector("price").getObject(2));
+        }
+    }
+
+    @Test
+    public void testThatBinaryValuesAreWrittenAndOtherValuesAreNull() {
+        try (BlockAllocator allocator = new BlockAllocatorImpl()) {
+            Block block = allocator.createBlock(new Schema(List.of(PAYLOAD)));
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            DocDBRowWriter rowWriter = new DocDBRowWriter(constraints, List.of(PAYLOAD), List.of());
+
+            assertTrue(rowWriter.writeRow(block, 0, new Object[]{new byte[]{1, 2}}, new Object[0]));
+            assertTrue(rowWriter.writeRow(block, 1, new Object[]{new Binary(new byte[]{3})}, new Object[0]));
+            assertTrue(rowWriter.writeRow(block, 2, new Object[]{"not binary"}, new Object[0]));
+            assertTrue(rowWriter.writeRow(block, 3, new Object[]{42}, new Object[0]));
+            block.setRowCount(4);
+
+            assertArrayEquals(new byte[]{1, 2}, (byte[]) block.getFieldVector("payload").getObject(0));
+            assertArrayEquals(new byte[]{3}, (byte[]) block.getFieldVector("payload").getObject(1));
+            assertNull(block.getFieldVector("payload").getObject(2));
+            assertNull(block.getFieldVector("payload").getObject(3));
+        }
+    }
+
+    @Test
+    public void testThatDaysBeforeTheEpochAreRoundedDown() {
+        try (BlockAllocator allocator = new BlockAllocatorImpl()) {
+            Block block = allocator.createBlock(new Schema(List.of(BIRTHDAY)));
+            Constraints constraints = new Constraints(Collections.emptyMap(), Collections.emptyList(), Collections.emptyList(), DEFAULT_NO_LIMIT);
+            DocDBRowWriter rowWriter = new DocDBRowWriter(constraints, List.of(BIRTHDAY), List.of());
+
+            // 1969-12-31T12:00:00Z, 1960-01-01T06:00:00Z and 1970-01-01T12:00:00Z
+            assertTrue(rowWriter.writeRow(block, 0, new Object[]{new Date(-43_200_000L)}, new Object[0]));
+            assertTrue(rowWriter.writeRow(block, 1, new Object[]{new Date(-315_597_600_000L)}, new Object[0]));
+            assertTrue(rowWriter.writeRow(block, 2, new Object[]{new Date(43_200_000L)}, new Object[0]));
+            block.setRowCount(3);
+
+            assertEquals(-1, ((DateDayVector) block.getFieldVector("birthday")).get(0));
+            assertEquals(-3653, ((DateDayVector) block.getFieldVector("birthday")).get(1));
+            assertEquals(0, ((DateDayVector) block.getFieldVector("birthday")).get(2));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.bson.Document;
+import org.junit.Test;
+
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.ConstantExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.FunctionCallExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.expression.VariableExpression;
+import com.amazonaws.athena.connector.lambda.domain.predicate.functions.StandardFunctions;
+
+public class ExpressionUtilsTest {
+
+    @Test
+    public void testThatWildcardsBecomeRegexes() {
+        assertEquals("^abc$", ExpressionUtils.makeRegex("abc", null));
+        assertEquals("^a[\\s\\S]c$", ExpressionUtils.makeRegex("a_c", null));
+        assertEquals("^a[\\s\\S]*c$", ExpressionUtils.makeRegex("a%c", null));
+        assertEquals("^ab", ExpressionUtils.makeRegex("ab%", null));
+        assertEquals("^ab", ExpressionUtils.makeRegex("ab%%%", null));
+        assertEquals("^", ExpressionUtils.makeRegex("%", null));
+    }
+
+    @Test
+    public void testThatMetacharactersAreMatchedLiterally() {
+        assertEquals("^v1\\.0\\+\\(beta\\)", ExpressionUtils.makeRegex("v1.0+(beta)%", null));
+        assertEquals("^\\[a\\]\\*\\$$", ExpressionUtils.makeRegex("[a]*$", null));
+    }
+
+    @Test
+    public void testThatEscapedWildcardsAreMatchedLiterally() {
+        assertEquals("^100%$", ExpressionUtils.makeRegex("100!%", '!'));
+        assertEquals("^a_b", ExpressionUtils.makeRegex("a!_b%", '!'));
+        assertEquals("^a!", ExpressionUtils.makeRegex("a!!%", '!'));
+        assertEquals("^a\\.b$", ExpressionUtils.makeRegex("a!.b", '!'));
+        assertNull(ExpressionUtils.makeRegex("abc!", '!'));
+    }
+
+    @Test
+    public void testThatLikeAlsoReturnsValuesOfOtherTypes() {
+        ArrowType varcharType = Types.MinorType.VARCHAR.getType();
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("_id", varcharType)
+                .build();
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        FunctionCallExpression like = new FunctionCallExpression(Types.MinorType.BIT.getType(), StandardFunctions.LIKE_PATTERN_FUNCTION_NAME.getFunctionName(), List.of(
+                new VariableExpression("_id", varcharType),
+                new ConstantExpression(BlockUtils.newBlock(allocator, "c", varcharType, "64f%"), varcharType)));
+
+        Document expected = new Document("$or", List.of(
+                new Document("_id", new Document("$regex", "^64f")),
+                new Document("_id", new Document("$ne", null).append("$not", new Document("$type", "string")))));
+        assertEquals(expected, ExpressionUtils.makeLikePredicate(schema, like));
+    }
+}
@@ -4,6 +4,7 @@ package com.amazonaws.athena.connectors.docdb;
 import static org.junit.Assert.assertEquals;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -57,4 +58,12 @@ public class GlobHandlerTest {
 
         assertEquals(List.of("Foo_1", "Foo_2"), parsed);
     }
+
+    @Test
+    public void testThatGroupsAreCapturedFromCollectionNames() {
+        GlobHandler globHandler = new GlobHandler("Foo_{{Id}};Foo_Bar_{{Id}}");
+
+        assertEquals(Map.of("Id", "2425"), globHandler.getGroups("Foo_Bar_Id", "Foo_Bar_2425"));
+        assertEquals(Map.of(), globHandler.getGroups("Foobar", "Foobar"));
+    }
 }
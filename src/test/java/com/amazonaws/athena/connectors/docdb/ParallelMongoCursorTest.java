@@ -0,0 +1,93 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+
+public class ParallelMongoCursorTest extends RealMongoTest {
+
+    @Test
+    public void testThatEveryDocumentIsReadWithItsCollection() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            List<String> collectionNames = insertCollections(mongoClient, 10, 50);
+
+            Set<String> rows = new HashSet<>();
+            try (ParallelMongoCursor<Document> cursor = new ParallelMongoCursor<>("parallel", collectionNames, mongoClient, 3, 2,
+                    collection -> collection.find().batchSize(7))) {
+                while (cursor.hasNext()) {
+                    Document document = cursor.next();
+                    assertEquals(cursor.getCurrentCollection(), document.getString("collection"));
+                    assertTrue(rows.add(cursor.getCurrentCollection() + "@" + document.getInteger("n")));
+                }
+            }
+
+            assertEquals(500, rows.size());
+        }
+    }
+
+    @Test
+    public void testThatCursorsCanBeClosedBeforeTheyAreExhausted() throws InterruptedException {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            List<String> collectionNames = insertCollections(mongoClient, 5, 100);
+
+            ParallelMongoCursor<Document> cursor = new ParallelMongoCursor<>("parallel", collectionNames, mongoClient, 2, 1,
+                    collection -> collection.find().batchSize(5));
+            assertTrue(cursor.hasNext());
+            cursor.next();
+            cursor.close();
+
+            assertEquals(0, awaitNoOpenCursors(mongoClient, 5_000));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testThatErrorsOfTheReadersAreRethrown() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            List<String> collectionNames = insertCollections(mongoClient, 3, 10);
+
+            AssertionError error = new AssertionError("broken reader");
+            try (ParallelMongoCursor<Document> cursor = new ParallelMongoCursor<>("parallel", collectionNames, mongoClient, 3, 2,
+                    collection -> {
+                        if (collection.getNamespace().getCollectionName().equals("tenant_1")) {
+                            throw error;
+                        }
+                        return collection.find();
+                    })) {
+                while (cursor.hasNext()) {
+                    cursor.next();
+                }
+                fail("The error of the reader wasn't rethrown");
+            } catch (RuntimeException ex) {
+                assertSame(error, ex.getCause());
+            }
+        }
+    }
+
+    private List<String> insertCollections(MongoClient mongoClient, int collectionCount, int documentCount) {
+        MongoDatabase database = mongoClient.getDatabase("parallel");
+        List<String> collectionNames = new ArrayList<>();
+        for (int i = 0; i < collectionCount; i++) {
+            String collectionName = "tenant_" + i;
+            List<Document> documents = new ArrayList<>();
+            for (int j = 0; j < documentCount; j++) {
+                documents.add(new Document("collection", collectionName).append("n", j));
+            }
+            database.getCollection(collectionName).insertMany(documents);
+            collectionNames.add(collectionName);
+        }
+        return collectionNames;
+    }
+}
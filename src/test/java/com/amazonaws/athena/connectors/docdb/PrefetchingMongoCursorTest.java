@@ -0,0 +1,71 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Sorts;
+
+public class PrefetchingMongoCursorTest extends RealMongoTest {
+
+    @Test
+    public void testThatAllBatchesAreReadInOrder() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            MongoCollection<Document> collection = insertDocuments(mongoClient, 1000);
+
+            List<Integer> values = new ArrayList<>();
+            try (PrefetchingMongoCursor<Document> cursor = new PrefetchingMongoCursor<>(
+                    collection.find().sort(Sorts.ascending("n")).batchSize(7).iterator(), 2, "test")) {
+                while (cursor.hasNext()) {
+                    values.add(cursor.next().getInteger("n"));
+                }
+                assertFalse(cursor.hasNext());
+            }
+
+            assertEquals(1000, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(Integer.valueOf(i), values.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testThatCursorsCanBeClosedBeforeTheyAreExhausted() throws InterruptedException {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            MongoCollection<Document> collection = insertDocuments(mongoClient, 100);
+
+            PrefetchingMongoCursor<Document> cursor = new PrefetchingMongoCursor<>(collection.find().batchSize(5).iterator(), 1, "closed");
+            assertTrue(cursor.hasNext());
+            cursor.next();
+            cursor.close();
+            assertFalse(cursor.hasNext());
+
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("prefetch-closed")) {
+                    thread.join(5_000);
+                    assertFalse("The fetcher thread didn't end", thread.isAlive());
+                }
+            }
+            assertEquals(0, awaitNoOpenCursors(mongoClient, 5_000));
+        }
+    }
+
+    private MongoCollection<Document> insertDocuments(MongoClient mongoClient, int count) {
+        MongoCollection<Document> collection = mongoClient.getDatabase("prefetch").getCollection("numbers");
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new Document("n", i));
+        }
+        collection.insertMany(documents);
+        return collection;
+    }
+}
@@ -0,0 +1,279 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.FieldBuilder;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.domain.predicate.EquatableValueSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.OrderByField;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+
+public class QueryUtilsTest {
+
+    @Test
+    public void testThatStructsAreProjectedAsDotPaths() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .addField(FieldBuilder.newBuilder("payload", Types.MinorType.STRUCT.getType())
+                        .addField(FieldBuilder.newBuilder("customer", Types.MinorType.STRUCT.getType())
+                                .addStringField("id")
+                                .build())
+                        .addIntField("total")
+                        .build())
+                .addField(FieldBuilder.newBuilder("tags", Types.MinorType.LIST.getType())
+                        .addStringField("")
+                        .build())
+                .build();
+
+        Document expected = new Document("name", 1)
+                .append("payload.customer.id", 1)
+                .append("payload.total", 1)
+                .append("tags", 1);
+        assertEquals(expected, QueryUtils.makeProjection(schema));
+    }
+
+    @Test
+    public void testThatValuesOfOtherTypesThanTheSortedColumnsAreFound() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .addField("age", Types.MinorType.INT.getType())
+                .addField(FieldBuilder.newBuilder("address", Types.MinorType.STRUCT.getType())
+                        .addStringField("city")
+                        .build())
+                .build();
+
+        List<OrderByField> orderBy = List.of(
+                new OrderByField("name", OrderByField.Direction.ASC_NULLS_FIRST),
+                new OrderByField("age", OrderByField.Direction.DESC_NULLS_LAST));
+        assertEquals(new Document("name", 1).append("age", -1), QueryUtils.makeSort(schema, orderBy));
+
+        Document expected = new Document("$or", List.of(
+                new Document("name", new Document("$type", "array")),
+                new Document("name", new Document("$ne", null).append("$not", new Document("$type", "string"))),
+                new Document("age", new Document("$type", "array")),
+                new Document("age", new Document("$ne", null).append("$not", new Document("$type", "number"))),
+                new Document("age", Double.NaN)));
+        assertEquals(expected, QueryUtils.makeUnorderedValuesQuery(schema, orderBy));
+
+        assertNull(QueryUtils.makeSort(schema, List.of(new OrderByField("address", OrderByField.Direction.ASC_NULLS_FIRST))));
+    }
+
+    @Test
+    public void testThatConstraintsOnStructChildrenUseDotPaths() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField(FieldBuilder.newBuilder("address", Types.MinorType.STRUCT.getType())
+                        .addStringField("city")
+                        .addIntField("zip")
+                        .build())
+                .build();
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        Map<String, ValueSet> constraintSummary = Map.of(
+                "address.city", SortedRangeSet.of(Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "Oslo")),
+                "address.zip", SortedRangeSet.of(Range.greaterThan(allocator, Types.MinorType.INT.getType(), 150)),
+                "address.country", SortedRangeSet.of(Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "Norway")));
+
+        Document expected = new Document("address.city", new Document("$eq", "Oslo"))
+                .append("address.zip", new Document("$gt", 150));
+        assertEquals(expected, QueryUtils.makeQuery(schema, constraintSummary));
+        assertFalse(QueryUtils.isExactQuery(schema, constraintSummary));
+    }
+
+    @Test
+    public void testThatEquatableValueSetsBecomeInAndNotInPredicates() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .addField("tag", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        Map<String, ValueSet> constraintSummary = Map.of(
+                "name", EquatableValueSet.newBuilder(allocator, Types.MinorType.VARCHAR.getType(), true, false)
+                        .add("john")
+                        .add("jack")
+                        .build(),
+                "tag", EquatableValueSet.newBuilder(allocator, Types.MinorType.VARCHAR.getType(), false, false)
+                        .add("deleted")
+                        .build());
+
+        Document expected = new Document("name", new Document("$in", List.of("john", "jack")))
+                .append("tag", new Document("$nin", Arrays.asList("deleted", null)));
+        assertEquals(expected, QueryUtils.makeQuery(schema, constraintSummary));
+        assertTrue(QueryUtils.isExactQuery(schema, constraintSummary));
+    }
+
+    @Test
+    public void testThatLongInListsAreSplitAtTheThreshold() {
+        Field field = FieldBuilder.newBuilder("age", Types.MinorType.INT.getType()).build();
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+
+        List<Object> values = IntStream.range(0, QueryUtils.MAX_IN_VALUES).boxed().collect(Collectors.toList());
+        assertEquals(new Document("age", new Document("$in", values)),
+                QueryUtils.makePredicate(field, inList(allocator, values, true)));
+
+        List<Object> moreValues = IntStream.rangeClosed(0, QueryUtils.MAX_IN_VALUES).boxed().collect(Collectors.toList());
+        Document expected = new Document("$or", List.of(
+                new Document("age", new Document("$in", values)),
+                new Document("age", new Document("$in", List.of(QueryUtils.MAX_IN_VALUES)))));
+        assertEquals(expected, QueryUtils.makePredicate(field, inList(allocator, moreValues, true)));
+
+        // NOT IN lists also exclude null, which counts towards the threshold.
+        List<Object> notInValues = new ArrayList<>(values.subList(0, QueryUtils.MAX_IN_VALUES - 1));
+        notInValues.add(null);
+        assertEquals(new Document("age", new Document("$nin", notInValues)),
+                QueryUtils.makePredicate(field, inList(allocator, values.subList(0, QueryUtils.MAX_IN_VALUES - 1), false)));
+
+        expected = new Document("$and", List.of(
+                new Document("age", new Document("$nin", values)),
+                new Document("age", new Document("$nin", Arrays.asList((Object) null)))));
+        assertEquals(expected, QueryUtils.makePredicate(field, inList(allocator, values, false)));
+    }
+
+    private static ValueSet inList(BlockAllocatorImpl allocator, List<Object> values, boolean whiteList) {
+        EquatableValueSet.Builder builder = EquatableValueSet.newBuilder(allocator, Types.MinorType.INT.getType(), whiteList, false);
+        values.forEach(builder::add);
+        return builder.build();
+    }
+
+    @Test
+    public void testThatCollidingPredicatesAreCombinedWithAnd() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("age", Types.MinorType.INT.getType())
+                .addField("score", Types.MinorType.INT.getType())
+                .build();
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        ValueSet outside = SortedRangeSet.of(
+                Range.lessThan(allocator, Types.MinorType.INT.getType(), 1),
+                Range.greaterThan(allocator, Types.MinorType.INT.getType(), 5));
+        Map<String, ValueSet> constraintSummary = new LinkedHashMap<>();
+        constraintSummary.put("age", outside);
+        constraintSummary.put("score", outside);
+
+        Document expected = new Document("$and", List.of(
+                new Document("$or", List.of(new Document("age", new Document("$lt", 1)), new Document("age", new Document("$gt", 5)))),
+                new Document("$or", List.of(new Document("score", new Document("$lt", 1)), new Document("score", new Document("$gt", 5))))));
+        assertEquals(expected, QueryUtils.makeQuery(schema, constraintSummary));
+    }
+
+    @Test
+    public void testThatConstraintsAllowingNullMatchMissingAndNullFields() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("status", Types.MinorType.VARCHAR.getType())
+                .addField("owner", Types.MinorType.VARCHAR.getType())
+                .addField("age", Types.MinorType.INT.getType())
+                .build();
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        Map<String, ValueSet> constraintSummary = Map.of(
+                "status", SortedRangeSet.newBuilder(Types.MinorType.VARCHAR.getType(), true)
+                        .add(Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "open"))
+                        .build(),
+                "owner", SortedRangeSet.onlyNull(Types.MinorType.VARCHAR.getType()),
+                "age", SortedRangeSet.newBuilder(Types.MinorType.INT.getType(), true)
+                        .add(Range.greaterThan(allocator, Types.MinorType.INT.getType(), 18))
+                        .build());
+
+        Document expected = new Document("status", new Document("$in", Arrays.asList("open", null)))
+                .append("owner", new Document("$eq", null))
+                .append("$or", List.of(new Document("age", new Document("$gt", 18)), new Document("age", new Document("$eq", null))));
+        assertEquals(expected, QueryUtils.makeQuery(schema, constraintSummary));
+        assertTrue(QueryUtils.isExactQuery(schema, constraintSummary));
+    }
+
+    @Test
+    public void testThatOnlyEqualitiesAndStringsAreSafeFromCoercion() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("name", Types.MinorType.VARCHAR.getType())
+                .addField("age", Types.MinorType.BIGINT.getType())
+                .build();
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        ValueSet nameRange = SortedRangeSet.of(Range.greaterThan(allocator, Types.MinorType.VARCHAR.getType(), "j"));
+        ValueSet ageValues = SortedRangeSet.of(Range.equal(allocator, Types.MinorType.BIGINT.getType(), 5L),
+                Range.equal(allocator, Types.MinorType.BIGINT.getType(), 7L));
+        assertTrue(QueryUtils.isCoercionSafeQuery(schema, Map.of("name", nameRange, "age", ageValues)));
+
+        // 5.5 satisfies the query of age > 5, but is read as 5.
+        ValueSet ageRange = SortedRangeSet.of(Range.greaterThan(allocator, Types.MinorType.BIGINT.getType(), 5L));
+        assertFalse(QueryUtils.isCoercionSafeQuery(schema, Map.of("age", ageRange)));
+        // A string satisfies the query of age IS NOT NULL, but is read as NULL.
+        assertFalse(QueryUtils.isCoercionSafeQuery(schema, Map.of("age", SortedRangeSet.notNull(allocator, Types.MinorType.BIGINT.getType()))));
+        assertFalse(QueryUtils.isCoercionSafeQuery(schema, Map.of("age", inList(allocator, List.of(5), false))));
+    }
+
+    @Test
+    public void testThatObjectIdHexStringsAlsoMatchObjectIds() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("_id", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        ObjectId low = new ObjectId("64f000000000000000000000");
+        ObjectId high = new ObjectId("64f100000000000000000000");
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        ValueSet values = SortedRangeSet.of(
+                Range.equal(allocator, Types.MinorType.VARCHAR.getType(), low.toHexString()),
+                Range.equal(allocator, Types.MinorType.VARCHAR.getType(), "custom"));
+        assertEquals(new Document("_id", new Document("$in", List.of(low.toHexString(), "custom", low))),
+                QueryUtils.makeQuery(schema, Map.of("_id", values)));
+
+        ValueSet range = SortedRangeSet.of(Range.range(allocator, Types.MinorType.VARCHAR.getType(), low.toHexString(), true, high.toHexString(), false));
+        Document expected = new Document("$or", List.of(
+                new Document("_id", new Document("$gte", low.toHexString()).append("$lt", high.toHexString())),
+                new Document("_id", new Document("$gte", low).append("$lt", high))));
+        assertEquals(expected, QueryUtils.makeQuery(schema, Map.of("_id", range)));
+
+        ValueSet prefixRange = SortedRangeSet.of(Range.greaterThanOrEqual(allocator, Types.MinorType.VARCHAR.getType(), "64f"));
+        expected = new Document("$or", List.of(
+                new Document("_id", new Document("$gte", "64f")),
+                new Document("_id", new Document("$gte", low))));
+        assertEquals(expected, QueryUtils.makeQuery(schema, Map.of("_id", prefixRange)));
+        assertTrue(QueryUtils.isExactQuery(schema, Map.of("_id", prefixRange)));
+    }
+
+    @Test
+    public void testThatRangesOnOtherStringFieldsAlsoMatchObjectIds() {
+        Schema schema = SchemaBuilder.newBuilder()
+                .addField("userId", Types.MinorType.VARCHAR.getType())
+                .build();
+
+        BlockAllocatorImpl allocator = new BlockAllocatorImpl();
+        ValueSet range = SortedRangeSet.of(Range.range(allocator, Types.MinorType.VARCHAR.getType(), "64F", false, "64f1x", true));
+        Document expected = new Document("$or", List.of(
+                new Document("userId", new Document("$gt", "64F").append("$lte", "64f1x")),
+                new Document("userId", new Document("$gte", new ObjectId("64a000000000000000000000"))
+                        .append("$lt", new ObjectId("64f200000000000000000000")))));
+        assertEquals(expected, QueryUtils.makeQuery(schema, Map.of("userId", range)));
+        assertTrue(QueryUtils.isExactQuery(schema, Map.of("userId", range)));
+
+        // No ObjectId sorts after "g", while every ObjectId sorts before it.
+        ValueSet above = SortedRangeSet.of(Range.greaterThan(allocator, Types.MinorType.VARCHAR.getType(), "g"));
+        assertEquals(new Document("userId", new Document("$gt", "g")), QueryUtils.makeQuery(schema, Map.of("userId", above)));
+        ValueSet below = SortedRangeSet.of(Range.lessThan(allocator, Types.MinorType.VARCHAR.getType(), "g"));
+        expected = new Document("$or", List.of(
+                new Document("userId", new Document("$lt", "g")),
+                new Document("userId", new Document("$type", "objectId"))));
+        assertEquals(expected, QueryUtils.makeQuery(schema, Map.of("userId", below)));
+    }
+}
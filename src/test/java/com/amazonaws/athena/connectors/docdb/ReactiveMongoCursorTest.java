@@ -0,0 +1,112 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.reactivestreams.client.MongoClient;
+
+public class ReactiveMongoCursorTest extends RealMongoTest {
+
+    @Test
+    public void testThatEveryDocumentIsReadWithItsCollection() {
+        List<String> collectionNames = insertCollections(10, 50);
+
+        try (MongoClient mongoClient = com.mongodb.reactivestreams.client.MongoClients.create(mongoDBContainer.getConnectionString())) {
+            Set<String> rows = new HashSet<>();
+            try (ReactiveMongoCursor<Document> cursor = new ReactiveMongoCursor<>("reactive", collectionNames, mongoClient, 3, 12,
+                    collection -> collection.find().batchSize(7))) {
+                while (cursor.hasNext()) {
+                    Document document = cursor.next();
+                    assertEquals(cursor.getCurrentCollection(), document.getString("collection"));
+                    assertTrue(rows.add(cursor.getCurrentCollection() + "@" + document.getInteger("n")));
+                }
+            }
+
+            assertEquals(500, rows.size());
+        }
+    }
+
+    @Test
+    public void testThatCursorsCanBeClosedBeforeTheyAreExhausted() {
+        List<String> collectionNames = insertCollections(5, 100);
+
+        try (MongoClient mongoClient = com.mongodb.reactivestreams.client.MongoClients.create(mongoDBContainer.getConnectionString())) {
+            ReactiveMongoCursor<Document> cursor = new ReactiveMongoCursor<>("reactive", collectionNames, mongoClient, 2, 4,
+                    collection -> collection.find().batchSize(5));
+            assertTrue(cursor.hasNext());
+            cursor.next();
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void testThatMappedDocumentsAreReadWithTheirCollection() {
+        List<String> collectionNames = insertCollections(3, 20);
+
+        try (MongoClient mongoClient = com.mongodb.reactivestreams.client.MongoClients.create(mongoDBContainer.getConnectionString())) {
+            Set<String> rows = new HashSet<>();
+            try (ReactiveMongoCursor<String> cursor = new ReactiveMongoCursor<>("reactive", collectionNames, mongoClient, 2, 8,
+                    collection -> ReactiveMongoCursor.map(collection.find().batchSize(5), document -> document.getString("collection") + "@" + document.getInteger("n")))) {
+                while (cursor.hasNext()) {
+                    String row = cursor.next();
+                    assertTrue(row.startsWith(cursor.getCurrentCollection() + "@"));
+                    assertTrue(rows.add(row));
+                }
+            }
+
+            assertEquals(60, rows.size());
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testThatFailedMappingsAreRethrown() {
+        List<String> collectionNames = insertCollections(1, 20);
+
+        try (MongoClient mongoClient = com.mongodb.reactivestreams.client.MongoClients.create(mongoDBContainer.getConnectionString())) {
+            IllegalStateException error = new IllegalStateException("broken mapping");
+            try (ReactiveMongoCursor<Integer> cursor = new ReactiveMongoCursor<>("reactive", collectionNames, mongoClient, 1, 8,
+                    collection -> ReactiveMongoCursor.map(collection.find().batchSize(5), document -> {
+                        if (document.getInteger("n") == 10) {
+                            throw error;
+                        }
+                        return document.getInteger("n");
+                    }))) {
+                while (cursor.hasNext()) {
+                    cursor.next();
+                }
+                fail("The error of the mapping wasn't rethrown");
+            } catch (RuntimeException ex) {
+                assertSame(error, ex.getCause());
+            }
+        }
+    }
+
+    private List<String> insertCollections(int collectionCount, int documentCount) {
+        try (com.mongodb.client.MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            MongoDatabase database = mongoClient.getDatabase("reactive");
+            List<String> collectionNames = new ArrayList<>();
+            for (int i = 0; i < collectionCount; i++) {
+                String collectionName = "tenant_" + i;
+                List<Document> documents = new ArrayList<>();
+                for (int j = 0; j < documentCount; j++) {
+                    documents.add(new Document("collection", collectionName).append("n", j));
+                }
+                database.getCollection(collectionName).insertMany(documents);
+                collectionNames.add(collectionName);
+            }
+            return collectionNames;
+        }
+    }
+}
@@ -1,13 +1,38 @@
 package com.amazonaws.athena.connectors.docdb;
 
+import java.util.List;
+
+import org.bson.Document;
 import org.junit.Rule;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.containers.wait.strategy.DockerHealthcheckWaitStrategy;
 import org.testcontainers.utility.DockerImageName;
 
+import com.mongodb.client.MongoClient;
+
 public abstract class RealMongoTest {
 
     @Rule
     public final MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:4.0.10"))
             .waitingFor(new DockerHealthcheckWaitStrategy());
+
+    /**
+     * Waits until the server holds no open cursors, as cursors are killed by background threads.
+     *
+     * @return The number of cursors that are still open on the server once the timeout expired, or zero.
+     */
+    protected static long awaitNoOpenCursors(MongoClient mongoClient, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long openCursors = getOpenCursors(mongoClient);
+        while (openCursors > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            openCursors = getOpenCursors(mongoClient);
+        }
+        return openCursors;
+    }
+
+    private static long getOpenCursors(MongoClient mongoClient) {
+        Document status = mongoClient.getDatabase("admin").runCommand(new Document("serverStatus", 1));
+        return status.getEmbedded(List.of("metrics", "cursor", "open", "total"), Number.class).longValue();
+    }
 }
@@ -0,0 +1,59 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.List;
+
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import com.mongodb.MongoClientSettings;
+
+public class RowCodecTest {
+
+    private static final List<Field> FIELDS = List.of(
+            new Field("_id", FieldType.nullable(Types.MinorType.VARCHAR.getType()), null),
+            new Field("age", FieldType.nullable(Types.MinorType.INT.getType()), null),
+            new Field("tags", FieldType.nullable(Types.MinorType.LIST.getType()), null),
+            new Field("address", FieldType.nullable(Types.MinorType.STRUCT.getType()), null));
+
+    @Test
+    public void testThatRequestedFieldsAreDecodedInOrder() {
+        ObjectId id = new ObjectId();
+        Document document = new Document("unused", new Document("deeply", List.of(1, 2)))
+                .append("address", new Document("city", "Berlin"))
+                .append("age", 42)
+                .append("tags", List.of("a", new Document("b", 1)))
+                .append("_id", id);
+
+        Object[] row = decode(new RowCodec(FIELDS, false), document);
+        assertArrayEquals(new Object[]{id.toString(), 42, List.of("a", new Document("b", 1)), new Document("city", "Berlin")}, row);
+    }
+
+    @Test
+    public void testThatFieldsAreMatchedIgnoringCase() {
+        Document document = new Document("AGE", 1).append("Age", 2);
+
+        assertArrayEquals(new Object[]{null, null, null, null}, decode(new RowCodec(FIELDS, false), document));
+        assertArrayEquals(new Object[]{null, 2, null, null}, decode(new RowCodec(FIELDS, true), document));
+    }
+
+    @Test
+    public void testThatDecodedDocumentsAreMatchedIgnoringCase() {
+        Document document = new Document("Age", 2).append("TAGS", List.of("a")).append("unused", 1);
+
+        assertArrayEquals(new Object[]{null, null, null, null}, new RowCodec(FIELDS, false).toRow(document));
+        assertArrayEquals(new Object[]{null, 2, List.of("a"), null}, new RowCodec(FIELDS, true).toRow(document));
+    }
+
+    private Object[] decode(RowCodec codec, Document document) {
+        return codec.decode(new BsonDocumentReader(document.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry())),
+                DecoderContext.builder().build());
+    }
+}
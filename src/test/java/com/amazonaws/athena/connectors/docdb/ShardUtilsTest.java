@@ -0,0 +1,65 @@
+package com.amazonaws.athena.connectors.docdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.junit.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+
+public class ShardUtilsTest extends RealMongoTest {
+
+    @Test
+    public void testThatUnshardedCollectionsHaveNoChunks() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getConnectionString())) {
+            MongoCollection<Document> collection = mongoClient.getDatabase("bravo").getCollection("moo");
+            collection.insertOne(new Document());
+
+            assertEquals(List.of(), ShardUtils.getChunks(mongoClient, collection.getNamespace()));
+        }
+    }
+
+    @Test
+    public void testThatContiguousChunksOfAShardAreMerged() {
+        List<ShardUtils.Chunk> chunks = List.of(
+                new ShardUtils.Chunk("k", new MinKey(), 10, "a"),
+                new ShardUtils.Chunk("k", 10, 20, "a"),
+                new ShardUtils.Chunk("k", 20, 30, "a"),
+                new ShardUtils.Chunk("k", 30, 40, "b"),
+                new ShardUtils.Chunk("k", 40, new MaxKey(), "a"));
+
+        assertEquals(List.of(10, 20, 30, 40), ShardUtils.getBoundaries(chunks, 5));
+        assertEquals(List.of(20, 30, 40), ShardUtils.getBoundaries(chunks, 4));
+        assertEquals(List.of(20, 30), ShardUtils.getBoundaries(chunks, 3));
+    }
+
+    @Test
+    public void testThatInterleavedChunksAreMergedIntoAtMostTheMaximumNumberOfRanges() {
+        List<ShardUtils.Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            chunks.add(new ShardUtils.Chunk("k", i == 0 ? new MinKey() : i * 10, i == 999 ? new MaxKey() : (i + 1) * 10, i % 2 == 0 ? "a" : "b"));
+        }
+
+        assertEquals(List.of(1000, 2000, 3000, 4000, 5000, 6000, 7000, 8000, 9000), ShardUtils.getBoundaries(chunks, 10));
+        assertEquals(499, ShardUtils.getBoundaries(chunks, 500).size());
+        assertEquals(List.of(), ShardUtils.getBoundaries(chunks, 1));
+    }
+
+    @Test
+    public void testThatChunksBoundedByMixedTypesAreNotAligned() {
+        List<ShardUtils.Chunk> chunks = List.of(
+                new ShardUtils.Chunk("k", new MinKey(), 10, "a"),
+                new ShardUtils.Chunk("k", 10, "x", "b"),
+                new ShardUtils.Chunk("k", "x", new MaxKey(), "c"));
+
+        assertNull(ShardUtils.getBoundaries(chunks, 1));
+    }
+}